@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+final class BenchmarkData {
+
+    static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    static Film film(int index) {
+        return Film.builder()
+                .name("Фильм " + index)
+                .description("Описание фильма " + index)
+                .releaseDate(LocalDate.of(1950, 1, 1).plusDays(index % 25_000))
+                .duration(60 + index % 120)
+                .build();
+    }
+
+    static User user(int index) {
+        return User.builder()
+                .email("user" + index + "@mail.ru")
+                .login("user" + index)
+                .name("Пользователь " + index)
+                .birthday(LocalDate.of(1970, 1, 1).plusDays(index % 15_000))
+                .build();
+    }
+
+    static void fillFilms(FilmStorage filmStorage, int count) {
+        for (int i = 0; i < count; i++) {
+            filmStorage.createFilm(film(i));
+        }
+    }
+
+    static void fillUsers(UserStorage userStorage, int count) {
+        for (int i = 0; i < count; i++) {
+            userStorage.createUser(user(i));
+        }
+    }
+
+    /*
+     * Распределение, близкое к Ципфу: фильм ранга r получает maxLikes / r^skew лайков от случайных пользователей,
+     * ранги перемешаны по id фильмов, чтобы самые популярные фильмы не оказались первыми созданными.
+     */
+    static void fillSkewedLikes(FilmStorage filmStorage, int films, int users, int maxLikes, double skew) {
+        Random random = new Random(SEED);
+        int[] ranks = shuffledRange(films, random);
+        for (int filmId = 1; filmId <= films; filmId++) {
+            int likes = Math.min(users, (int) (maxLikes / Math.pow(ranks[filmId - 1] + 1, skew)));
+            for (int i = 0; i < likes; i++) {
+                filmStorage.addLike(filmId, 1 + random.nextInt(users));
+            }
+        }
+    }
+
+    /*
+     * Граф друзей с таким же перекосом: горстка активных пользователей с тысячами друзей
+     * и длинный хвост пользователей с несколькими.
+     */
+    static void fillSkewedFriends(UserStorage userStorage, int users, int maxFriends, double skew) {
+        Random random = new Random(SEED);
+        int[] ranks = shuffledRange(users, random);
+        for (int userId = 1; userId <= users; userId++) {
+            int friends = Math.max(1, Math.min(users - 1, (int) (maxFriends / Math.pow(ranks[userId - 1] + 1, skew))));
+            for (int i = 0; i < friends; i++) {
+                int friendId = 1 + random.nextInt(users);
+                if (friendId != userId) {
+                    userStorage.addFriend(userId, friendId);
+                }
+            }
+        }
+    }
+
+    private static int[] shuffledRange(int size, Random random) {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+        return values;
+    }
+}
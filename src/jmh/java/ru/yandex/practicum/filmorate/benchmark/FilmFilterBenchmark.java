@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Фильтр по году выпуска и длительности 90-100 минут: через вторичные индексы и полным проходом по getAllFilms(),
+ * как раньше делал клиент. В каталоге BenchmarkData год покрывает ~1,5% фильмов, диапазон длительностей ~9%.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilmFilterBenchmark {
+
+    private static final FilmFilter FILTER = new FilmFilter(LocalDate.of(1980, 1, 1), LocalDate.of(1980, 12, 31),
+            90, 100);
+
+    @Param({"100000", "1000000"})
+    private int films;
+
+    @Param({"100"})
+    private int limit;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        BenchmarkData.fillFilms(filmStorage, films);
+    }
+
+    @Benchmark
+    public List<Film> indexed() {
+        return filmStorage.getFilmsByFilter(FILTER, null, limit);
+    }
+
+    @Benchmark
+    public List<Film> fullScan() {
+        return filmStorage.getAllFilms()
+                .stream()
+                .filter(FILTER::matches)
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Режим sample выдаёт перцентили; p0.99 — задержка, которую мы отслеживаем для /users/{id}/recommendations/films.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilmRecommendationBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"20000"})
+    private int films;
+
+    @Param({"20000"})
+    private int maxLikes;
+
+    @Param({"0.8"})
+    private double skew;
+
+    @Param({"1000"})
+    private int maxFanOut;
+
+    @Param({"64", "1000000"})
+    private int parallelThreshold;
+
+    private RecommendationService recommendationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, users);
+        BenchmarkData.fillFilms(filmStorage, films);
+        BenchmarkData.fillSkewedLikes(filmStorage, films, users, maxLikes, skew);
+        recommendationService = new RecommendationService(userStorage, filmStorage, maxFanOut, 10, parallelThreshold);
+    }
+
+    @Benchmark
+    public List<Film> getFilmRecommendations() {
+        return recommendationService.getFilmRecommendations(1 + ThreadLocalRandom.current().nextInt(users), 10);
+    }
+}
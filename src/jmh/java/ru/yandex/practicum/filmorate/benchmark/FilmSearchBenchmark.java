@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.FilmSearchService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Поиск по каталогу BenchmarkData: "Фильм N" / "Описание фильма N". Точный запрос находит один фильм,
+ * префиксный разворачивается в сотни номеров, широкий совпадает со всем каталогом.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilmSearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int films;
+
+    private FilmSearchService filmSearchService;
+
+    @Setup
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        BenchmarkData.fillFilms(filmStorage, films);
+        filmSearchService = new FilmSearchService(filmStorage, 100, 256);
+        filmSearchService.rebuild();
+    }
+
+    @Benchmark
+    public int[] exactQuery() {
+        return filmSearchService.search("фильм 4242", 10, true);
+    }
+
+    @Benchmark
+    public int[] prefixQuery() {
+        return filmSearchService.search("описание 424", 10, true);
+    }
+
+    @Benchmark
+    public int[] broadQuery() {
+        return filmSearchService.search("фильм", 10, true);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.event.MutationEventBus;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmSearchService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.validation.FilmValidator;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilmServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int films;
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"5000"})
+    private int maxLikes;
+
+    @Param({"1.0"})
+    private double skew;
+
+    @Param({"10"})
+    private int popularCount;
+
+    @Param({"ASYNC", "SYNC"})
+    private MutationEventBus.Durability durability;
+
+    private FilmService filmService;
+    private MutationEventBus eventBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, users);
+        BenchmarkData.fillFilms(filmStorage, films);
+        BenchmarkData.fillSkewedLikes(filmStorage, films, users, maxLikes, skew);
+        TrendingService trendingService = new TrendingService(100);
+        FilmSearchService filmSearchService = new FilmSearchService(filmStorage, 100, 256);
+        eventBus = new MutationEventBus(List.of(trendingService, filmSearchService), 4, 8192, 256,
+                MutationEventBus.Backpressure.BLOCK, durability, new SimpleMeterRegistry());
+        filmService = new FilmService(filmStorage, userStorage, new FilmValidator(),
+                Validation.buildDefaultValidatorFactory().getValidator(), trendingService, filmSearchService,
+                eventBus, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventBus.close();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmService.getPopularFilms(popularCount);
+    }
+
+    @Benchmark
+    public void addLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        filmService.addLike(1 + random.nextInt(films), 1 + random.nextInt(users));
+    }
+}
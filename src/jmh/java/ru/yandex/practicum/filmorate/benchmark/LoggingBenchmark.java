@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.event.MutationEventBus;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmSearchService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.validation.FilmValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Стоимость журналирования на горячих путях FilmService. Уровень DEBUG воспроизводит прежний объём записей
+ * (все сообщения "Обработка запроса..." и "Запрос ... обработан" на каждый вызов), INFO — текущий.
+ * Записи уходят в файл во временном каталоге синхронно или через AsyncAppender, как в logback-spring.xml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"DEBUG", "INFO"})
+    private String level;
+
+    @Param({"sync", "async"})
+    private String appender;
+
+    @Param({"10000"})
+    private int films;
+
+    @Param({"1000"})
+    private int users;
+
+    private FilmService filmService;
+    private MutationEventBus eventBus;
+    private Path logFile;
+    private Appender<ILoggingEvent> fileAppender;
+
+    @Setup
+    public void setUp() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, users);
+        BenchmarkData.fillFilms(filmStorage, films);
+        TrendingService trendingService = new TrendingService(100);
+        FilmSearchService filmSearchService = new FilmSearchService(filmStorage, 100, 256);
+        eventBus = new MutationEventBus(List.of(trendingService, filmSearchService), 4, 8192, 256,
+                MutationEventBus.Backpressure.BLOCK, MutationEventBus.Durability.ASYNC, new SimpleMeterRegistry());
+        filmService = new FilmService(filmStorage, userStorage, new FilmValidator(),
+                Validation.buildDefaultValidatorFactory().getValidator(), trendingService, filmSearchService,
+                eventBus, new SimpleMeterRegistry());
+
+        logFile = Files.createTempFile("filmorate-logging", ".log");
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] %-40.40logger{39} : %m%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder);
+        file.start();
+        fileAppender = file;
+        if ("async".equals(appender)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(0);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            fileAppender = async;
+        }
+        Logger logger = context.getLogger("ru.yandex.practicum.filmorate");
+        logger.setLevel(Level.toLevel(level));
+        logger.setAdditive(false);
+        logger.addAppender(fileAppender);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Logger logger = ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger("ru.yandex.practicum.filmorate");
+        eventBus.close();
+        logger.detachAppender(fileAppender);
+        fileAppender.stop();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmService.getFilmById(1 + ThreadLocalRandom.current().nextInt(films));
+    }
+
+    @Benchmark
+    public void addLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        filmService.addLike(1 + random.nextInt(films), 1 + random.nextInt(users));
+    }
+
+    @Benchmark
+    public Object getMissingFilm() {
+        try {
+            return filmService.getFilmById(films + 1 + ThreadLocalRandom.current().nextInt(films));
+        } catch (NotFoundException e) {
+            return e;
+        }
+    }
+}
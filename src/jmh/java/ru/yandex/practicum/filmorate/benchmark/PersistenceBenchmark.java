@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(8)
+public class PersistenceBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 1_000_000;
+
+    @Param({"none", "async", "sync"})
+    private String journal;
+
+    private Path directory;
+    private WriteAheadLog wal;
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StorageJournal storageJournal = StorageJournal.NOOP;
+        if (!journal.equals("none")) {
+            directory = Files.createTempDirectory("filmorate-wal");
+            wal = new WriteAheadLog(directory, WriteAheadLog.Durability.valueOf(journal.toUpperCase()));
+            wal.open(0);
+            storageJournal = wal;
+        }
+        filmStorage = new InMemoryFilmStorage(storageJournal);
+        BenchmarkData.fillFilms(filmStorage, FILMS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (wal != null) {
+            wal.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void addLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        filmStorage.addLike(random.nextInt(FILMS) + 1, random.nextInt(USERS) + 1);
+    }
+}
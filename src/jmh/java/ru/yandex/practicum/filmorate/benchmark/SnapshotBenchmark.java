@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * Холодный старт со снимка: время до первого ответа на /films/{id} и /users/{id}/friends (lazy) против времени,
+ * за которое все строки оказываются в куче (full).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SnapshotBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private Path directory;
+    private SnapshotStore snapshotStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillFilms(filmStorage, size);
+        BenchmarkData.fillUsers(userStorage, size);
+        BenchmarkData.fillSkewedLikes(filmStorage, size, size, 10_000, 1.0);
+        BenchmarkData.fillSkewedFriends(userStorage, size, 1_000, 0.8);
+        directory = Files.createTempDirectory("filmorate-snapshot");
+        snapshotStore = new SnapshotStore(directory);
+        snapshotStore.write(0, new SnapshotStore.Header(size, size), filmStorage.getAllFilms(),
+                userStorage.getAllUsers());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object lazyFirstRequest() throws IOException {
+        MappedSnapshot snapshot = snapshotStore.open(0);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmStorage.attachSnapshot(snapshot.films());
+        userStorage.attachSnapshot(snapshot.users());
+        Film film = filmStorage.getFilmById(size / 2);
+        User user = userStorage.getUserById(size / 2);
+        List<User> friends = userStorage.getUsersByIds(user.getFriends().toSortedIntArray());
+        return List.of(film, friends);
+    }
+
+    @Benchmark
+    public Object fullLoad() throws IOException {
+        MappedSnapshot snapshot = snapshotStore.open(0);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmStorage.attachSnapshot(snapshot.films());
+        userStorage.attachSnapshot(snapshot.users());
+        filmStorage.warmUp();
+        userStorage.warmUp();
+        return List.of(filmStorage, userStorage);
+    }
+}
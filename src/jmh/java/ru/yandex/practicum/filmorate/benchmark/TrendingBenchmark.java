@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+import ru.yandex.practicum.filmorate.service.TrendingWindow;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/* Запись лайка в счётчики окон из нескольких потоков и стоимость пересчёта рейтинга по активным фильмам. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrendingBenchmark {
+
+    @Param({"1000", "100000"})
+    private int activeFilms;
+
+    private TrendingService trendingService;
+
+    @Setup
+    public void setUp() {
+        trendingService = new TrendingService(100);
+        for (int filmId = 1; filmId <= activeFilms; filmId++) {
+            trendingService.recordLike(filmId);
+        }
+        trendingService.refresh();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordLike() {
+        trendingService.recordLike(1 + ThreadLocalRandom.current().nextInt(activeFilms));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int[] getTrending() {
+        return trendingService.getTrending(TrendingWindow.DAY, 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void refresh() {
+        trendingService.refresh();
+    }
+}
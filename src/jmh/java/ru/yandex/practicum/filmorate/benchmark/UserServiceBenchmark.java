@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.event.MutationEventBus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class UserServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    @Param({"2000"})
+    private int maxFriends;
+
+    @Param({"0.7"})
+    private double skew;
+
+    private UserService userService;
+    private MutationEventBus eventBus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.fillUsers(userStorage, users);
+        BenchmarkData.fillSkewedFriends(userStorage, users, maxFriends, skew);
+        eventBus = new MutationEventBus(List.of(), 4, 8192, 256, MutationEventBus.Backpressure.BLOCK,
+                MutationEventBus.Durability.ASYNC, new SimpleMeterRegistry());
+        userService = new UserService(userStorage, new InMemoryFilmStorage(),
+                Validation.buildDefaultValidatorFactory().getValidator(), eventBus, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        eventBus.close();
+    }
+
+    @Benchmark
+    public List<User> getUsersFriends() {
+        return userService.getUsersFriends(1 + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public List<User> getCommonUsersFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userService.getCommonUsersFriends(1 + random.nextInt(users), 1 + random.nextInt(users));
+    }
+}
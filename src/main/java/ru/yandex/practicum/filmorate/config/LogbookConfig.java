@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+import ru.yandex.practicum.filmorate.controller.NdjsonStreamer;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+@Configuration
+public class LogbookConfig {
+
+    @Value("${filmorate.logging.http.sample-rate:1.0}")
+    private double sampleRate;
+
+    /* Logbook пишет на уровне TRACE и без него не буферизует тела вовсе; здесь решается, какая доля запросов
+       попадёт в журнал, когда TRACE для org.zalando.logbook включён. */
+    @Bean
+    public Predicate<HttpRequest> requestCondition() {
+        return request -> (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate)
+                && !request.getPath().startsWith("/actuator")
+                && !String.valueOf(request.getHeaders().getFirst("Accept"))
+                .contains(NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+                && !String.valueOf(request.getContentType()).contains(NdjsonStreamer.APPLICATION_NDJSON_VALUE);
+    }
+}
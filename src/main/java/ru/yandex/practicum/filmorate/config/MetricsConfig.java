@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+@Configuration
+public class MetricsConfig {
+
+    /* Значения читаются при каждом опросе /actuator/prometheus, а не при изменении хранилищ. */
+    @Bean
+    public MeterBinder storageSizeMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        return registry -> {
+            Gauge.builder("filmorate.storage.films", filmStorage, FilmStorage::getFilmsCount)
+                    .description("Количество фильмов в хранилище")
+                    .register(registry);
+            Gauge.builder("filmorate.storage.likes", filmStorage, FilmStorage::getLikesCount)
+                    .description("Количество лайков в хранилище")
+                    .register(registry);
+            Gauge.builder("filmorate.storage.users", userStorage, UserStorage::getUsersCount)
+                    .description("Количество пользователей в хранилище")
+                    .register(registry);
+            Gauge.builder("filmorate.storage.friendships", userStorage, UserStorage::getFriendshipsCount)
+                    .description("Количество дружб в хранилище")
+                    .register(registry);
+        };
+    }
+}
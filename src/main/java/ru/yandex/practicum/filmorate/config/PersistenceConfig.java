@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.PersistenceManager;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotStore;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.WriteAheadLog;
+
+import java.nio.file.Path;
+
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "false", matchIfMissing = true)
+    public StorageJournal storageJournal() {
+        return StorageJournal.NOOP;
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public static class Enabled {
+
+        @Value("${filmorate.persistence.directory:data}")
+        private Path directory;
+
+        @Bean
+        public WriteAheadLog writeAheadLog(
+                @Value("${filmorate.persistence.durability:sync}") WriteAheadLog.Durability durability) {
+            return new WriteAheadLog(directory, durability);
+        }
+
+        @Bean
+        public PersistenceManager persistenceManager(WriteAheadLog writeAheadLog,
+                                                     InMemoryFilmStorage filmStorage,
+                                                     InMemoryUserStorage userStorage) {
+            return new PersistenceManager(writeAheadLog, new SnapshotStore(directory), filmStorage, userStorage);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/* Пересчёт трендов выполняется всегда, снимки хранилища — только при включённой персистентности. */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.storage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+@Configuration
+@ConditionalOnProperty(name = "filmorate.storage.cache.enabled", havingValue = "true")
+public class StorageCacheConfig {
+
+    @Value("${filmorate.storage.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Bean
+    @Primary
+    public CachingFilmStorage cachingFilmStorage(FilmStorage filmStorage, MeterRegistry meterRegistry) {
+        CachingFilmStorage cachingFilmStorage = new CachingFilmStorage(filmStorage, maximumSize);
+        CaffeineCacheMetrics.monitor(meterRegistry, cachingFilmStorage.getCache(), "films");
+        return cachingFilmStorage;
+    }
+
+    @Bean
+    @Primary
+    public CachingUserStorage cachingUserStorage(UserStorage userStorage, CachingFilmStorage cachingFilmStorage,
+                                                 MeterRegistry meterRegistry) {
+        CachingUserStorage cachingUserStorage = new CachingUserStorage(userStorage, maximumSize,
+                cachingFilmStorage.getCache());
+        CaffeineCacheMetrics.monitor(meterRegistry, cachingUserStorage.getCache(), "users");
+        return cachingUserStorage;
+    }
+}
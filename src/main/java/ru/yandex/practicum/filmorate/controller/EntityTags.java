@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/*
+ * Строгие ETag из версий сущностей. В тег входит поколение версий из хранилища: у базы оно постоянное и теги
+ * переживают перезапуск, а в памяти версии отсчитываются заново, и новое поколение не даёт старым тегам совпасть.
+ */
+final class EntityTags {
+
+    static final String FILM = "f";
+    static final String USER = "u";
+
+    private EntityTags() {
+    }
+
+    static String of(String generation, String kind, int id, long version) {
+        return "\"" + generation + "-" + kind + id + "." + version + "\"";
+    }
+
+    /* Тег списка — 64-битный хеш id и версий его элементов в порядке выдачи. */
+    static <T> String ofList(String generation, String kind, List<T> items, ToIntFunction<T> id,
+                             ToLongFunction<T> version) {
+        long hash = items.size();
+        for (T item : items) {
+            hash = mix(hash, id.applyAsInt(item));
+            hash = mix(hash, version.applyAsLong(item));
+        }
+        return "\"" + generation + "-" + kind + "." + Long.toHexString(hash) + "\"";
+    }
+
+    /* Версия из заголовка If-Match с одним тегом; null, если заголовка нет или он равен "*". */
+    static Long expectedVersion(String ifMatch, String generation, String kind, int id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        String prefix = "\"" + generation + "-" + kind + id + ".";
+        if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // не наш тег, ниже ответим 412
+            }
+        }
+        throw new PreconditionFailedException("Заголовок If-Match не соответствует текущей версии.");
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -1,14 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.NullEqualsException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 
 import java.util.HashSet;
@@ -16,27 +21,61 @@ import java.util.Set;
 
 @RestControllerAdvice(value = "ru.yandex.practicum.filmorate.controller")
 public class ErrorHandler {
+
+    private final Counter validationErrors;
+    private final Counter notFoundErrors;
+    private final Counter conflictErrors;
+    private final Counter preconditionErrors;
+    private final Counter internalErrors;
+
+    @Autowired
+    public ErrorHandler(MeterRegistry meterRegistry) {
+        this.validationErrors = meterRegistry.counter("filmorate.errors", "type", "validation");
+        this.notFoundErrors = meterRegistry.counter("filmorate.errors", "type", "not_found");
+        this.conflictErrors = meterRegistry.counter("filmorate.errors", "type", "conflict");
+        this.preconditionErrors = meterRegistry.counter("filmorate.errors", "type", "precondition_failed");
+        this.internalErrors = meterRegistry.counter("filmorate.errors", "type", "internal");
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(ValidationException e) {
+        validationErrors.increment();
         return new ErrorResponse(e.getMessage());
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleNotFoundException(NotFoundException e) {
+        notFoundErrors.increment();
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleConflictException(ConflictException e) {
+        conflictErrors.increment();
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ErrorResponse handlePreconditionFailedException(PreconditionFailedException e) {
+        preconditionErrors.increment();
         return new ErrorResponse(e.getMessage());
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleNullEqualsException(NullEqualsException e) {
+        validationErrors.increment();
         return new ErrorResponse(e.getMessage());
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleConstraintViolationException(ConstraintViolationException e) {
+        validationErrors.increment();
         Set<String> errors = new HashSet<>();
         for (ConstraintViolation<?> violation : e.getConstraintViolations()) {
             errors.add(violation.getMessage());
@@ -47,6 +86,7 @@ public class ErrorHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationExceptions(MethodArgumentNotValidException e) {
+        validationErrors.increment();
         Set<String> errors = new HashSet<>();
         e.getBindingResult().getFieldErrors().forEach(error -> errors.add(error.getDefaultMessage()));
         return new ErrorResponse(errors.toString());
@@ -55,6 +95,7 @@ public class ErrorHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleError(RuntimeException e) {
+        internalErrors.increment();
         return new ErrorResponse("Произошла непредвиденная ошибка." + e.getMessage());
     }
 }
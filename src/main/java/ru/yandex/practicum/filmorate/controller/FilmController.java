@@ -1,25 +1,80 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingWindow;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final FilmService filmService;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final NdjsonReader ndjsonReader;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, NdjsonStreamer ndjsonStreamer, NdjsonReader ndjsonReader) {
         this.filmService = filmService;
+        this.ndjsonStreamer = ndjsonStreamer;
+        this.ndjsonReader = ndjsonReader;
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public ResponseEntity<List<?>> getAllFilms(@RequestParam(name = "limit", required = false) final Integer limit,
+                                               @RequestParam(name = "cursor", required = false) final Integer cursor,
+                                               @RequestParam(name = "view", defaultValue = "summary") final String view,
+                                               @RequestParam(name = "releasedFrom", required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate releasedFrom,
+                                               @RequestParam(name = "releasedTo", required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate releasedTo,
+                                               @RequestParam(name = "minDuration", required = false)
+                                               final Integer minDuration,
+                                               @RequestParam(name = "maxDuration", required = false)
+                                               final Integer maxDuration) {
+        boolean full = FilmView.parse(view) == FilmView.FULL;
+        FilmFilter filter = new FilmFilter(releasedFrom, releasedTo, minDuration, maxDuration);
+        if (!filter.isEmpty()) {
+            if (limit == null) {
+                return ResponseEntity.ok(full
+                        ? filmService.getFilteredFilms(filter, cursor, null)
+                        : filmService.getFilteredFilmSummaries(filter, cursor, null));
+            }
+            return full
+                    ? page(filmService.getFilteredFilms(filter, cursor, limit), limit, Film::getId)
+                    : page(filmService.getFilteredFilmSummaries(filter, cursor, limit), limit, FilmSummary::id);
+        }
+        if (limit == null && cursor == null) {
+            return ResponseEntity.ok(full ? filmService.getAllFilms() : filmService.getAllFilmSummaries());
+        }
+        return full
+                ? page(filmService.getFilmsPage(cursor, limit), limit, Film::getId)
+                : page(filmService.getFilmSummariesPage(cursor, limit), limit, FilmSummary::id);
+    }
+
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllFilms(@RequestParam(name = "view", defaultValue = "summary")
+                                                final String view) {
+        return FilmView.parse(view) == FilmView.FULL
+                ? ndjsonStreamer.stream(filmService::getFilmsPage, Film::getId)
+                : ndjsonStreamer.stream(filmService::getFilmSummariesPage, FilmSummary::id);
     }
 
     @PostMapping
@@ -27,14 +82,46 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> createFilms(@RequestBody List<Film> films) {
+        return filmService.createFilms(films, 0);
+    }
+
+    @PostMapping(value = "/batch", consumes = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> importFilms(InputStream body) throws IOException {
+        return ndjsonReader.read(body, Film.class, filmService::createFilms);
+    }
+
     @PutMapping
-    public Film update(@Valid @RequestBody Film film) {
-        return filmService.updateFilm(film);
+    public ResponseEntity<Film> update(@Valid @RequestBody Film film,
+                                       @RequestHeader(name = "If-Match", required = false) final String ifMatch) {
+        Long expectedVersion = film.getId() == null ? null : EntityTags.expectedVersion(ifMatch,
+                filmService.getVersionGeneration(), EntityTags.FILM, film.getId());
+        Film updated = filmService.updateFilm(film, expectedVersion);
+        return ResponseEntity.ok()
+                .eTag(EntityTags.of(filmService.getVersionGeneration(), EntityTags.FILM, updated.getId(),
+                        updated.getVersion()))
+                .body(updated);
     }
 
+    /* При совпадении If-None-Match возвращается 304 без тела, ответ не сериализуется. */
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable("id") final Integer id) {
-        return filmService.getFilmById(id);
+    public Film getFilmById(@PathVariable("id") final Integer id, final WebRequest request) {
+        Film film = filmService.getFilmById(id);
+        return request.checkNotModified(EntityTags.of(filmService.getVersionGeneration(), EntityTags.FILM, film.getId(),
+                film.getVersion())) ? null : film;
+    }
+
+    @GetMapping("/{id}/likes")
+    public ResponseEntity<int[]> getFilmLikes(@PathVariable("id") final Integer id,
+                                              @RequestParam(name = "cursor", required = false) final Integer cursor,
+                                              @RequestParam(name = "limit", defaultValue = "1000") final Integer limit) {
+        int[] userIds = filmService.getFilmLikes(id, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (userIds.length == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(userIds[userIds.length - 1]));
+        }
+        return response.body(userIds);
     }
 
     @DeleteMapping("/{id}")
@@ -48,6 +135,16 @@ public class FilmController {
         filmService.addLike(filmId, userId);
     }
 
+    @PutMapping(value = "/likes/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> addLikes(@RequestBody List<Like> likes) {
+        return filmService.addLikes(likes, 0);
+    }
+
+    @PutMapping(value = "/likes/batch", consumes = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> importLikes(InputStream body) throws IOException {
+        return ndjsonReader.read(body, Like.class, filmService::addLikes);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void deleteLike(@PathVariable("id") final Integer filmId,
                            @PathVariable("userId") final Integer userId) {
@@ -55,7 +152,43 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") final Integer count) {
-        return filmService.getPopularFilms(count);
+    public List<?> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") final Integer count,
+                                   @RequestParam(name = "view", defaultValue = "summary") final String view,
+                                   final WebRequest request) {
+        if (FilmView.parse(view) == FilmView.FULL) {
+            List<Film> films = filmService.getPopularFilms(count);
+            return request.checkNotModified(EntityTags.ofList(filmService.getVersionGeneration(), "popular-full", films,
+                    Film::getId, Film::getVersion)) ? null : films;
+        }
+        List<FilmSummary> summaries = filmService.getPopularFilmSummaries(count);
+        return request.checkNotModified(EntityTags.ofList(filmService.getVersionGeneration(), "popular", summaries,
+                FilmSummary::id, FilmSummary::version)) ? null : summaries;
+    }
+
+    @GetMapping("/trending")
+    public List<?> getTrendingFilms(@RequestParam(name = "window", defaultValue = "24h") final String window,
+                                    @RequestParam(name = "count", defaultValue = "10") final Integer count,
+                                    @RequestParam(name = "view", defaultValue = "summary") final String view) {
+        FilmView filmView = FilmView.parse(view);
+        List<Film> films = filmService.getTrendingFilms(TrendingWindow.parse(window), count);
+        return filmView == FilmView.FULL ? films : films.stream().map(FilmSummary::of).toList();
+    }
+
+    @GetMapping("/search")
+    public List<?> searchFilms(@RequestParam(name = "q") final String query,
+                               @RequestParam(name = "count", defaultValue = "10") final Integer count,
+                               @RequestParam(name = "boost", defaultValue = "true") final boolean boost,
+                               @RequestParam(name = "view", defaultValue = "summary") final String view) {
+        FilmView filmView = FilmView.parse(view);
+        List<Film> films = filmService.searchFilms(query, count, boost);
+        return filmView == FilmView.FULL ? films : films.stream().map(FilmSummary::of).toList();
+    }
+
+    private static <T> ResponseEntity<List<?>> page(List<T> page, int limit, Function<T, Integer> idExtractor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(idExtractor.apply(page.getLast())));
+        }
+        return response.body(page);
     }
 }
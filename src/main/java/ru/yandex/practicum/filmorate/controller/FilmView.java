@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/* Представление фильмов в списках: по умолчанию сокращённое, полное с лайками только по запросу. */
+public enum FilmView {
+    SUMMARY,
+    FULL;
+
+    public static FilmView parse(String value) {
+        for (FilmView view : values()) {
+            if (view.name().equalsIgnoreCase(value)) {
+                return view;
+            }
+        }
+        throw new ValidationException("Параметр view должен принимать значение summary или full.");
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+@Component
+@Slf4j
+public class NdjsonReader {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final int maxItems;
+
+    @Autowired
+    public NdjsonReader(ObjectMapper objectMapper, @Value("${filmorate.batch.max-items:100000}") int maxItems) {
+        this.objectMapper = objectMapper;
+        this.maxItems = maxItems;
+    }
+
+    /*
+     * Читает тело построчно и передаёт его chunkHandler частями по CHUNK_SIZE вместе с индексом первого элемента.
+     * Разобранные элементы держатся в памяти только в пределах части, а результаты копятся по всему пакету,
+     * поэтому пакет ограничен maxItems элементами: дальше чтение прекращается, и последним идёт результат 413
+     * с индексом первой необработанной строки. Строки, не являющиеся корректным JSON, передаются как null.
+     */
+    public <T> List<BatchItemResult> read(InputStream body, Class<T> type,
+                                          BiFunction<List<T>, Integer, List<BatchItemResult>> chunkHandler)
+            throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<BatchItemResult> results = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        int firstIndex = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (firstIndex + chunk.size() == maxItems) {
+                if (!chunk.isEmpty()) {
+                    results.addAll(chunkHandler.apply(chunk, firstIndex));
+                }
+                results.add(BatchItemResult.failed(maxItems, 413,
+                        "Пакет длиннее " + maxItems + " элементов, оставшиеся строки не обработаны."));
+                return results;
+            }
+            T item = null;
+            try {
+                item = reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                log.error("Не удалось разобрать строку {} пакета: {}", firstIndex + chunk.size(), e.getOriginalMessage());
+            }
+            chunk.add(item);
+            if (chunk.size() == CHUNK_SIZE) {
+                results.addAll(chunkHandler.apply(chunk, firstIndex));
+                firstIndex += chunk.size();
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(chunkHandler.apply(chunk, firstIndex));
+        }
+        return results;
+    }
+}
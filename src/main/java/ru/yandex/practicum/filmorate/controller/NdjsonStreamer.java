@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+@Component
+public class NdjsonStreamer {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public NdjsonStreamer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> StreamingResponseBody stream(BiFunction<Integer, Integer, List<T>> pageLoader,
+                                            Function<T, Integer> idExtractor) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(new SerializedString("\n"));
+                Integer cursor = null;
+                List<T> page;
+                do {
+                    page = pageLoader.apply(cursor, PAGE_SIZE);
+                    for (T item : page) {
+                        writer.writeValue(generator, item);
+                    }
+                    if (!page.isEmpty()) {
+                        cursor = idExtractor.apply(page.getLast());
+                    }
+                    generator.flush();
+                } while (page.size() == PAGE_SIZE);
+                if (cursor != null) {
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+    }
+}
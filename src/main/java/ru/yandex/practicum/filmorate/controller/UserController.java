@@ -3,11 +3,22 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 @RestController
@@ -15,15 +26,38 @@ import ru.yandex.practicum.filmorate.service.UserService;
 public class UserController {
 
     private final UserService userService;
+    private final RecommendationService recommendationService;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final NdjsonReader ndjsonReader;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService,
+                          RecommendationService recommendationService,
+                          NdjsonStreamer ndjsonStreamer,
+                          NdjsonReader ndjsonReader) {
         this.userService = userService;
+        this.recommendationService = recommendationService;
+        this.ndjsonStreamer = ndjsonStreamer;
+        this.ndjsonReader = ndjsonReader;
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(name = "limit", required = false) final Integer limit,
+                                                  @RequestParam(name = "cursor", required = false) final Integer cursor) {
+        if (limit == null && cursor == null) {
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        List<User> page = userService.getUsersPage(cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            response.header(FilmController.NEXT_CURSOR_HEADER, String.valueOf(page.getLast().getId()));
+        }
+        return response.body(page);
+    }
+
+    @GetMapping(produces = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllUsers() {
+        return ndjsonStreamer.stream(userService::getUsersPage, User::getId);
     }
 
     @PostMapping
@@ -32,14 +66,43 @@ public class UserController {
         return userService.createUser(user);
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> createUsers(@RequestBody List<User> users) {
+        return userService.createUsers(users, 0);
+    }
+
+    @PostMapping(value = "/batch", consumes = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> importUsers(InputStream body) throws IOException {
+        return ndjsonReader.read(body, User.class, userService::createUsers);
+    }
+
     @PutMapping
-    public User updateUser(@Valid @RequestBody User user) {
-        return userService.updateUser(user);
+    public ResponseEntity<User> updateUser(@Valid @RequestBody User user,
+                                           @RequestHeader(name = "If-Match", required = false) final String ifMatch) {
+        Long expectedVersion = user.getId() == null ? null : EntityTags.expectedVersion(ifMatch,
+                userService.getVersionGeneration(), EntityTags.USER, user.getId());
+        User updated = userService.updateUser(user, expectedVersion);
+        return ResponseEntity.ok()
+                .eTag(EntityTags.of(userService.getVersionGeneration(), EntityTags.USER, updated.getId(),
+                        updated.getVersion()))
+                .body(updated);
     }
 
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable("id") final Integer id) {
-        return userService.getUserById(id);
+    public User getUserById(@PathVariable("id") final Integer id, final WebRequest request) {
+        User user = userService.getUserById(id);
+        return request.checkNotModified(EntityTags.of(userService.getVersionGeneration(), EntityTags.USER, user.getId(),
+                user.getVersion())) ? null : user;
+    }
+
+    @GetMapping("/by-login/{login}")
+    public User getUserByLogin(@PathVariable("login") final String login) {
+        return userService.getUserByLogin(login);
+    }
+
+    @GetMapping("/by-email")
+    public User getUserByEmail(@RequestParam("email") final String email) {
+        return userService.getUserByEmail(email);
     }
 
     @DeleteMapping("/{id}")
@@ -53,6 +116,16 @@ public class UserController {
         userService.addFriend(userId, friendId);
     }
 
+    @PutMapping(value = "/friends/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> addFriends(@RequestBody List<Friendship> friendships) {
+        return userService.addFriends(friendships, 0);
+    }
+
+    @PutMapping(value = "/friends/batch", consumes = NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> importFriends(InputStream body) throws IOException {
+        return ndjsonReader.read(body, Friendship.class, userService::addFriends);
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void deleteFriend(@PathVariable("id") final Integer userId,
                              @PathVariable("friendId") final Integer friendId) {
@@ -60,8 +133,10 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getUsersFriends(@PathVariable("id") final Integer id) {
-        return userService.getUsersFriends(id);
+    public List<User> getUsersFriends(@PathVariable("id") final Integer id, final WebRequest request) {
+        List<User> friends = userService.getUsersFriends(id);
+        return request.checkNotModified(EntityTags.ofList(userService.getVersionGeneration(), "friends", friends,
+                User::getId, User::getVersion)) ? null : friends;
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -69,5 +144,27 @@ public class UserController {
                                             @PathVariable("otherId") final Integer otherId) {
         return userService.getCommonUsersFriends(userId, otherId);
     }
-}
 
+    @GetMapping("/{id}/friends/common")
+    public List<User> getCommonUsersFriends(@PathVariable("id") final Integer userId,
+                                            @RequestParam("otherIds") final List<Integer> otherIds) {
+        return userService.getCommonUsersFriends(userId, otherIds);
+    }
+
+    @GetMapping("/{id}/recommendations/friends")
+    public List<User> getFriendRecommendations(@PathVariable("id") final Integer userId,
+                                               @RequestParam(name = "count", defaultValue = "10") final Integer count) {
+        return recommendationService.getFriendRecommendations(userId, count);
+    }
+
+    @GetMapping("/{id}/recommendations/films")
+    public List<?> getFilmRecommendations(@PathVariable("id") final Integer userId,
+                                          @RequestParam(name = "count", defaultValue = "10") final Integer count,
+                                          @RequestParam(name = "view", defaultValue = "summary") final String view) {
+        boolean full = FilmView.parse(view) == FilmView.FULL;
+        List<Film> films = recommendationService.getFilmRecommendations(userId, count);
+        return full ? films : films.stream()
+                .map(FilmSummary::of)
+                .toList();
+    }
+}
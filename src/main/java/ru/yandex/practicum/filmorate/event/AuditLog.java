@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/* Пишет каждое изменение лайков и дружбы в логгер filmorate.audit. */
+@Component
+@ConditionalOnProperty(name = "filmorate.events.audit.enabled", havingValue = "true")
+@Slf4j(topic = "filmorate.audit")
+public class AuditLog implements MutationEventListener {
+
+    @Override
+    public void onEvents(List<MutationEvent> events) {
+        for (MutationEvent event : events) {
+            switch (event) {
+                case MutationEvent.LikeAdded like ->
+                        log.info("Пользователь {} поставил лайк фильму {}.", like.userId(), like.filmId());
+                case MutationEvent.LikeRemoved like ->
+                        log.info("Пользователь {} убрал лайк с фильма {}.", like.userId(), like.filmId());
+                case MutationEvent.FriendAdded friend ->
+                        log.info("Пользователь {} добавил в друзья пользователя {}.", friend.userId(), friend.friendId());
+                case MutationEvent.FriendRemoved friend ->
+                        log.info("Пользователь {} удалил из друзей пользователя {}.", friend.userId(), friend.friendId());
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.event;
+
+public sealed interface MutationEvent {
+
+    /* События с одинаковым ключом попадают в одну партицию и обрабатываются в порядке публикации. */
+    int partitionKey();
+
+    record LikeAdded(int filmId, int userId) implements MutationEvent {
+        @Override
+        public int partitionKey() {
+            return filmId;
+        }
+    }
+
+    record LikeRemoved(int filmId, int userId) implements MutationEvent {
+        @Override
+        public int partitionKey() {
+            return filmId;
+        }
+    }
+
+    /* Дружба симметрична, поэтому ключ не зависит от того, какая сторона её добавила или сняла. */
+    record FriendAdded(int userId, int friendId) implements MutationEvent {
+        @Override
+        public int partitionKey() {
+            return Math.min(userId, friendId);
+        }
+    }
+
+    record FriendRemoved(int userId, int friendId) implements MutationEvent {
+        @Override
+        public int partitionKey() {
+            return Math.min(userId, friendId);
+        }
+    }
+}
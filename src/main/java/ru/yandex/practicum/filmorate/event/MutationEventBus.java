@@ -0,0 +1,228 @@
+package ru.yandex.practicum.filmorate.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Внутрипроцессная шина изменений лайков и дружбы. События распределяются по партициям по ключу; каждая партиция —
+ * ограниченное кольцо (ArrayBlockingQueue), которое разбирает свой поток пачками до maxBatchSize, так что слушатели
+ * видят события одного фильма или пары друзей в порядке публикации и никогда одновременно.
+ * Когда партиция заполнена, BLOCK заставляет публикующего ждать места, а DROP отбрасывает событие и учитывает его.
+ * В режиме ASYNC publish() возвращается, как только событие поставлено в очередь, в SYNC — когда его обработали
+ * все слушатели.
+ */
+@Component
+@Slf4j
+public class MutationEventBus {
+
+    public enum Backpressure {
+        BLOCK,
+        DROP
+    }
+
+    public enum Durability {
+        SYNC,
+        ASYNC
+    }
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final List<MutationEventListener> listeners;
+    private final Partition[] partitions;
+    private final int maxBatchSize;
+    private final Backpressure backpressure;
+    private final Durability durability;
+    private final Counter droppedEvents;
+    private final Counter failedBatches;
+    private volatile boolean closed;
+
+    @Autowired
+    public MutationEventBus(List<MutationEventListener> listeners,
+                            @Value("${filmorate.events.partitions:4}") int partitions,
+                            @Value("${filmorate.events.queue-capacity:8192}") int queueCapacity,
+                            @Value("${filmorate.events.max-batch-size:256}") int maxBatchSize,
+                            @Value("${filmorate.events.backpressure:block}") Backpressure backpressure,
+                            @Value("${filmorate.events.durability:async}") Durability durability,
+                            MeterRegistry meterRegistry) {
+        this.listeners = List.copyOf(listeners);
+        this.maxBatchSize = maxBatchSize;
+        this.backpressure = backpressure;
+        this.durability = durability;
+        this.droppedEvents = meterRegistry.counter("filmorate.events.dropped");
+        this.failedBatches = meterRegistry.counter("filmorate.events.failures");
+        Gauge.builder("filmorate.events.queued", this, MutationEventBus::getQueuedCount)
+                .description("Количество событий, ожидающих обработки")
+                .register(meterRegistry);
+        this.partitions = new Partition[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new Partition(queueCapacity);
+            Thread thread = new Thread(this.partitions[i], "events-" + i);
+            thread.setDaemon(true);
+            this.partitions[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    public void publish(MutationEvent event) {
+        Partition partition = partitions[Math.floorMod(event.partitionKey(), partitions.length)];
+        long sequence = partition.enqueue(event);
+        if (sequence > 0 && durability == Durability.SYNC) {
+            partition.awaitProcessed(sequence);
+        }
+    }
+
+    /* Ждёт, пока все слушатели обработают события, поставленные в очередь до вызова. */
+    public void flush() {
+        for (Partition partition : partitions) {
+            partition.awaitProcessed(partition.published.get());
+        }
+    }
+
+    public int getQueuedCount() {
+        int queued = 0;
+        for (Partition partition : partitions) {
+            queued += partition.queue.size();
+        }
+        return queued;
+    }
+
+    /* Потоки партиций дорабатывают свои очереди; события, опубликованные после этого, обрабатываются в потоке
+     * вызывающего. */
+    @PreDestroy
+    public void close() {
+        closed = true;
+        for (Partition partition : partitions) {
+            try {
+                partition.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            partition.drainRemaining();
+        }
+    }
+
+    private void dispatch(List<MutationEvent> events) {
+        List<MutationEvent> batch = Collections.unmodifiableList(events);
+        for (MutationEventListener listener : listeners) {
+            try {
+                listener.onEvents(batch);
+            } catch (RuntimeException e) {
+                failedBatches.increment();
+                log.error("Ошибка обработки {} событий в {}.", events.size(), listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private final class Partition implements Runnable {
+
+        private final ArrayBlockingQueue<MutationEvent> queue;
+        /* В режиме SYNC номера идут в порядке очереди, поэтому публикующий ждёт ровно своего события. */
+        private final ReentrantLock publishLock = new ReentrantLock();
+        private final AtomicLong published = new AtomicLong();
+        private long processed;
+        private Thread thread;
+
+        private Partition(int capacity) {
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /* Возвращает номер события или 0, если оно отброшено или уже обработано. */
+        private long enqueue(MutationEvent event) {
+            if (closed) {
+                dispatch(List.of(event));
+                return 0;
+            }
+            if (durability == Durability.ASYNC) {
+                return offer(event) ? published.incrementAndGet() : 0;
+            }
+            publishLock.lock();
+            try {
+                return offer(event) ? published.incrementAndGet() : 0;
+            } finally {
+                publishLock.unlock();
+            }
+        }
+
+        private boolean offer(MutationEvent event) {
+            if (backpressure == Backpressure.DROP) {
+                if (queue.offer(event)) {
+                    return true;
+                }
+                droppedEvents.increment();
+                return false;
+            }
+            try {
+                queue.put(event);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Публикация события прервана.", e);
+            }
+        }
+
+        private synchronized void awaitProcessed(long sequence) {
+            while (processed < sequence) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Ожидание обработки событий прервано.", e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            List<MutationEvent> batch = new ArrayList<>(maxBatchSize);
+            while (true) {
+                MutationEvent first;
+                try {
+                    first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                process(batch);
+                batch.clear();
+            }
+        }
+
+        private void drainRemaining() {
+            List<MutationEvent> batch = new ArrayList<>(maxBatchSize);
+            while (queue.drainTo(batch, maxBatchSize) > 0) {
+                process(batch);
+                batch.clear();
+            }
+        }
+
+        private void process(List<MutationEvent> batch) {
+            dispatch(batch);
+            synchronized (this) {
+                processed += batch.size();
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.event;
+
+import java.util.List;
+
+/* Вызывается из потока партиции с пачкой её событий в порядке публикации. */
+public interface MutationEventListener {
+
+    void onEvents(List<MutationEvent> events);
+}
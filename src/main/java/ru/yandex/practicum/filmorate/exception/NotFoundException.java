@@ -1,7 +1,8 @@
 package ru.yandex.practicum.filmorate.exception;
 
 public class NotFoundException extends RuntimeException {
+    /* Ответ клиенту строится только из сообщения, стек вызовов не нужен и дорог при частых 4xx. */
     public NotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
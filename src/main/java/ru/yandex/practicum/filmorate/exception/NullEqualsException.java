@@ -2,6 +2,6 @@ package ru.yandex.practicum.filmorate.exception;
 
 public class NullEqualsException extends RuntimeException {
     public NullEqualsException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message, null, false, false);
+    }
+}
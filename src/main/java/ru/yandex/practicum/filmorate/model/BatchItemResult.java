@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    private final int index;
+    private final int status;
+    private final Integer id;
+    private final String error;
+
+    private BatchItemResult(int index, int status, Integer id, String error) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    public static BatchItemResult ok(int index, Integer id) {
+        return new BatchItemResult(index, 200, id, null);
+    }
+
+    public static BatchItemResult failed(int index, int status, String error) {
+        return new BatchItemResult(index, status, null, error);
+    }
+}
@@ -1,18 +1,22 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
 @NotNull(message = "film не должен быть равен null.")
 public class Film {
 
@@ -26,5 +30,9 @@ public class Film {
     @NotNull(message = "Необходимо задать значени продолжительности фильма.")
     @Positive(message = "Продолжительность фильма должна быть больше нуля.")
     private Integer duration;
-    private final Set<Integer> likes = new HashSet<>();
+    @Builder.Default
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private IntHashSet likes = new IntHashSet();
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
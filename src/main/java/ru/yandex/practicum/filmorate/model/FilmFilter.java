@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.LocalDate;
+
+/* Диапазоны фильтра включают границы; незаданная граница диапазон не ограничивает. */
+public record FilmFilter(LocalDate releasedFrom, LocalDate releasedTo, Integer minDuration, Integer maxDuration) {
+
+    public boolean hasReleaseDateRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    public boolean hasDurationRange() {
+        return minDuration != null || maxDuration != null;
+    }
+
+    public boolean isEmpty() {
+        return !hasReleaseDateRange() && !hasDurationRange();
+    }
+
+    public boolean matches(Film film) {
+        if (hasReleaseDateRange()) {
+            LocalDate releaseDate = film.getReleaseDate();
+            if (releaseDate == null
+                    || releasedFrom != null && releaseDate.isBefore(releasedFrom)
+                    || releasedTo != null && releaseDate.isAfter(releasedTo)) {
+                return false;
+            }
+        }
+        if (hasDurationRange()) {
+            Integer duration = film.getDuration();
+            return duration != null
+                    && (minDuration == null || duration >= minDuration)
+                    && (maxDuration == null || duration <= maxDuration);
+        }
+        return true;
+    }
+}
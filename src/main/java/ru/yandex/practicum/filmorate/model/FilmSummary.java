@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.LocalDate;
+
+/*
+ * Сокращённое представление фильма для списков: вместо набора лайков только их количество,
+ * поэтому размер ответа не зависит от популярности фильма.
+ */
+public record FilmSummary(Integer id, String name, LocalDate releaseDate, Integer duration, int likeCount,
+                          long version) {
+
+    public static FilmSummary of(Film film) {
+        return new FilmSummary(film.getId(), film.getName(), film.getReleaseDate(), film.getDuration(),
+                film.getLikes().size(), film.getVersion());
+    }
+}
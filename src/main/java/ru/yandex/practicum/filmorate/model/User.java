@@ -1,15 +1,19 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
 @NotNull(message = "user не должен быть равен null.")
 public class User {
 
@@ -23,5 +27,9 @@ public class User {
     private String name;
     @PastOrPresent(message = "Некорректная дата рождения.")
     private LocalDate birthday;
-    private final Set<Integer> friends = new HashSet<>();
+    @Builder.Default
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private IntHashSet friends = new IntHashSet();
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
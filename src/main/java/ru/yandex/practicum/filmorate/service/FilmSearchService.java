@@ -0,0 +1,316 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.MutationEvent;
+import ru.yandex.practicum.filmorate.event.MutationEventListener;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntConsumer;
+
+/*
+ * Инвертированный индекс по названиям и описаниям фильмов: терм -> id, по отсортированному отображению на поле,
+ * чтобы последнее слово запроса можно было раскрыть как префикс через subMap(). Списки вхождений — синхронизированные
+ * IntHashSet, которые меняются на месте, поэтому поиск рядом с обновлением может увидеть фильм сразу под старыми и
+ * новыми термами. Для каждого фильма запоминается проиндексированная версия: термы заменяются только более новой,
+ * так что опоздавшая переиндексация или обновление, обогнавшее удаление, не оставляют лишних вхождений. Фильм подходит, если каждое слово запроса найдено в названии (2 очка) или описании (1 очко);
+ * при равном счёте по тексту фильмы упорядочиваются по числу лайков, которое индекс повторяет за FilmService,
+ * затем по id.
+ */
+@Service
+@Slf4j
+public class FilmSearchService implements MutationEventListener {
+
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int MAX_LIKES_BOOST = (1 << 26) - 1;
+    private static final int PAGE_SIZE = 1000;
+
+    private final NavigableMap<String, IntHashSet> nameTerms = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, IntHashSet> descriptionTerms = new ConcurrentSkipListMap<>();
+    private final Map<Integer, IndexedFilm> indexedFilms = new ConcurrentHashMap<>();
+    private final Object likesLock = new Object();
+    private volatile int[] likesById = new int[0];
+    private final FilmStorage filmStorage;
+    private final int maxCount;
+    private final int maxPrefixTerms;
+
+    @Autowired
+    public FilmSearchService(FilmStorage filmStorage,
+                             @Value("${filmorate.search.max-count:100}") int maxCount,
+                             @Value("${filmorate.search.max-prefix-terms:256}") int maxPrefixTerms) {
+        this.filmStorage = filmStorage;
+        this.maxCount = maxCount;
+        this.maxPrefixTerms = maxPrefixTerms;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        int indexed = 0;
+        Integer cursor = null;
+        List<Film> page;
+        do {
+            page = filmStorage.getFilmsPage(cursor, PAGE_SIZE);
+            for (Film film : page) {
+                index(film);
+                setLikeCount(film.getId(), film.getLikes().size());
+            }
+            indexed += page.size();
+            if (!page.isEmpty()) {
+                cursor = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        log.info("Поисковый индекс построен для {} фильмов за {} мс.", indexed,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /* Индексирует новый фильм или заменяет термы прежней версии; устаревшая версия игнорируется. */
+    public void index(Film film) {
+        indexedFilms.compute(film.getId(), (filmId, indexed) -> {
+            if (indexed != null && indexed.version() >= film.getVersion()) {
+                return indexed;
+            }
+            if (indexed != null) {
+                removePostings(nameTerms, tokenize(indexed.name()), filmId);
+                removePostings(descriptionTerms, tokenize(indexed.description()), filmId);
+            }
+            addPostings(nameTerms, tokenize(film.getName()), filmId);
+            addPostings(descriptionTerms, tokenize(film.getDescription()), filmId);
+            return new IndexedFilm(film.getVersion(), film.getName(), film.getDescription());
+        });
+    }
+
+    /* Id фильмов не переиспользуются, поэтому отметка об удалении остаётся навсегда и отсекает опоздавшие версии. */
+    public void remove(int filmId) {
+        indexedFilms.compute(filmId, (id, indexed) -> {
+            if (indexed != null) {
+                removePostings(nameTerms, tokenize(indexed.name()), id);
+                removePostings(descriptionTerms, tokenize(indexed.description()), id);
+            }
+            return IndexedFilm.DELETED;
+        });
+        setLikeCount(filmId, 0);
+    }
+
+    /* Числа лайков всей пачки применяются за один захват блокировки. */
+    @Override
+    public void onEvents(List<MutationEvent> events) {
+        synchronized (likesLock) {
+            for (MutationEvent event : events) {
+                if (event instanceof MutationEvent.LikeAdded like) {
+                    ensureLikesCapacity(like.filmId())[like.filmId()]++;
+                } else if (event instanceof MutationEvent.LikeRemoved like) {
+                    ensureLikesCapacity(like.filmId())[like.filmId()]--;
+                }
+            }
+        }
+    }
+
+    public int[] search(String query, Integer count, boolean boostByLikes) {
+        if (query == null || query.isBlank()) {
+            log.error("Ошибка валидации q = {}", query);
+            throw new ValidationException("Параметр q не должен быть пустым.");
+        }
+        if (count == null || count <= 0 || count > maxCount) {
+            log.error("Ошибка валидации count = {}", count);
+            throw new ValidationException("Параметр count должен быть от 1 до " + maxCount + ".");
+        }
+        List<String> terms = new ArrayList<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return new int[0];
+        }
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(terms.size() - MAX_QUERY_TERMS, terms.size());
+        }
+        List<TermMatch> matches = new ArrayList<>(terms.size());
+        for (int i = 0; i < terms.size() - 1; i++) {
+            matches.add(exactMatch(terms.get(i)));
+        }
+        matches.add(prefixMatch(terms.getLast()));
+        TermMatch driver = matches.getFirst();
+        for (TermMatch match : matches) {
+            if (match.estimatedSize() < driver.estimatedSize()) {
+                driver = match;
+            }
+        }
+
+        TopK top = new TopK(count);
+        int[] likes = boostByLikes ? likesById : new int[0];
+        driver.forEachId(filmId -> {
+            int score = 0;
+            for (TermMatch match : matches) {
+                int termScore = match.score(filmId);
+                if (termScore == 0) {
+                    return;
+                }
+                score += termScore;
+            }
+            int likeCount = filmId < likes.length ? Math.max(0, Math.min(likes[filmId], MAX_LIKES_BOOST)) : 0;
+            top.offer(filmId, (score << 26) | likeCount);
+        });
+        return top.idsByScoreDescending();
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (i - start >= MIN_TERM_LENGTH) {
+                    terms.add(normalized.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private TermMatch exactMatch(String term) {
+        return new ExactMatch(nameTerms.get(term), descriptionTerms.get(term));
+    }
+
+    /* Фильмы, подходящие под префикс, в виде битовых множеств по id; в каждом поле не больше maxPrefixTerms термов. */
+    private TermMatch prefixMatch(String prefix) {
+        return new PrefixMatch(expandPrefix(nameTerms, prefix), expandPrefix(descriptionTerms, prefix));
+    }
+
+    private BitSet expandPrefix(NavigableMap<String, IntHashSet> terms, String prefix) {
+        BitSet ids = new BitSet();
+        int expanded = 0;
+        for (IntHashSet postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (++expanded > maxPrefixTerms) {
+                break;
+            }
+            postings.forEachInt(ids::set);
+        }
+        return ids;
+    }
+
+    private void setLikeCount(int filmId, int likes) {
+        synchronized (likesLock) {
+            ensureLikesCapacity(filmId)[filmId] = likes;
+        }
+    }
+
+    /* Id идут плотно, поэтому числа лайков лежат в массиве по id; читатели видят его без блокировок. */
+    private int[] ensureLikesCapacity(int filmId) {
+        int[] likes = likesById;
+        if (filmId >= likes.length) {
+            likes = Arrays.copyOf(likes, Math.max(filmId + 1, likes.length * 2));
+            likesById = likes;
+        }
+        return likes;
+    }
+
+    private static void addPostings(Map<String, IntHashSet> index, Set<String> terms, int filmId) {
+        for (String term : terms) {
+            index.computeIfAbsent(term, key -> new IntHashSet()).add(filmId);
+        }
+    }
+
+    private static void removePostings(Map<String, IntHashSet> index, Set<String> terms, int filmId) {
+        for (String term : terms) {
+            IntHashSet postings = index.get(term);
+            if (postings != null) {
+                postings.remove(filmId);
+            }
+        }
+    }
+
+    private record IndexedFilm(long version, String name, String description) {
+
+        static final IndexedFilm DELETED = new IndexedFilm(Long.MAX_VALUE, null, null);
+    }
+
+    private interface TermMatch {
+
+        int estimatedSize();
+
+        void forEachId(IntConsumer action);
+
+        /* 2, если терм есть в названии фильма, 1 — если только в описании, иначе 0. */
+        int score(int filmId);
+    }
+
+    private record ExactMatch(IntHashSet name, IntHashSet description) implements TermMatch {
+
+        @Override
+        public int estimatedSize() {
+            return (name == null ? 0 : name.size()) + (description == null ? 0 : description.size());
+        }
+
+        @Override
+        public void forEachId(IntConsumer action) {
+            if (name != null) {
+                name.forEachInt(action);
+            }
+            if (description != null) {
+                description.forEachInt(filmId -> {
+                    if (name == null || !name.contains(filmId)) {
+                        action.accept(filmId);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public int score(int filmId) {
+            if (name != null && name.contains(filmId)) {
+                return 2;
+            }
+            return description != null && description.contains(filmId) ? 1 : 0;
+        }
+    }
+
+    private record PrefixMatch(BitSet name, BitSet description) implements TermMatch {
+
+        @Override
+        public int estimatedSize() {
+            return name.cardinality() + description.cardinality();
+        }
+
+        @Override
+        public void forEachId(IntConsumer action) {
+            BitSet ids = (BitSet) name.clone();
+            ids.or(description);
+            for (int filmId = ids.nextSetBit(0); filmId >= 0; filmId = ids.nextSetBit(filmId + 1)) {
+                action.accept(filmId);
+            }
+        }
+
+        @Override
+        public int score(int filmId) {
+            if (name.get(filmId)) {
+                return 2;
+            }
+            return description.get(filmId) ? 1 : 0;
+        }
+    }
+}
@@ -1,49 +1,123 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.MutationEvent;
+import ru.yandex.practicum.filmorate.event.MutationEventBus;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.validation.FilmValidator;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class FilmService {
 
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final FilmValidator filmValidator;
+    private final Validator validator;
+    private final TrendingService trendingService;
+    private final FilmSearchService filmSearchService;
+    private final MutationEventBus eventBus;
+    private final Counter likesAdded;
+    private final Counter likesRemoved;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage, FilmValidator filmValidator) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, FilmValidator filmValidator,
+                       Validator validator, TrendingService trendingService, FilmSearchService filmSearchService,
+                       MutationEventBus eventBus, MeterRegistry meterRegistry) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.filmValidator = filmValidator;
+        this.validator = validator;
+        this.trendingService = trendingService;
+        this.filmSearchService = filmSearchService;
+        this.eventBus = eventBus;
+        this.likesAdded = meterRegistry.counter("filmorate.likes", "action", "added");
+        this.likesRemoved = meterRegistry.counter("filmorate.likes", "action", "removed");
     }
 
     public Film createFilm(Film film) {
-        log.info("Обработка запроса на добавление нового фильма.");
+        log.debug("Обработка запроса на добавление нового фильма.");
         filmValidator.validReleaseDate(film);
         filmStorage.createFilm(film);
+        filmSearchService.index(film);
         log.info("Фильм с названием: \"{}\" успешно добавлен в фильмотеку.", film.getName());
         return film;
     }
 
+    public List<BatchItemResult> createFilms(List<Film> films, int firstIndex) {
+        log.debug("Обработка запроса на пакетное добавление {} фильмов.", films.size());
+        List<BatchItemResult> results = new ArrayList<>(films.size());
+        for (int from = 0; from < films.size(); from += BATCH_CHUNK_SIZE) {
+            List<Film> chunk = films.subList(from, Math.min(films.size(), from + BATCH_CHUNK_SIZE));
+            BatchItemResult[] chunkResults = new BatchItemResult[chunk.size()];
+            List<Film> validFilms = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                String error = validateNewFilm(chunk.get(i));
+                if (error == null) {
+                    validFilms.add(chunk.get(i));
+                } else {
+                    chunkResults[i] = BatchItemResult.failed(firstIndex + from + i, HttpStatus.BAD_REQUEST.value(),
+                            error);
+                }
+            }
+            filmStorage.createFilms(validFilms);
+            validFilms.forEach(filmSearchService::index);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunkResults[i] == null) {
+                    chunkResults[i] = BatchItemResult.ok(firstIndex + from + i, chunk.get(i).getId());
+                }
+            }
+            results.addAll(Arrays.asList(chunkResults));
+        }
+        log.info("Пакетное добавление фильмов обработано, добавлено {} из {}.", countSucceeded(results),
+                films.size());
+        return results;
+    }
+
     public Film updateFilm(Film film) {
-        log.info("Обработка запроса на обновление данных о фильме.");
+        return updateFilm(film, null);
+    }
+
+    /* С expectedVersion изменения накладываются на ту версию, которую видел клиент, иначе 412. */
+    public Film updateFilm(Film film, Long expectedVersion) {
+        log.debug("Обработка запроса на обновление данных о фильме.");
         filmValidator.validFilmsIdNotNull(film);
-        if (filmStorage.getFilmById(film.getId()) == null) {
+        Film storedFilm = filmStorage.getFilmById(film.getId());
+        if (storedFilm == null) {
             log.error("Фильм с id = {} не найден.", film.getId());
             throw new NotFoundException("Фильм с id = " + film.getId() + " не найден.");
         }
+        if (expectedVersion != null && storedFilm.getVersion() != expectedVersion) {
+            log.error("Ошибка обновления фильма с id = {}, версия {} вместо ожидаемой {}.", film.getId(),
+                    storedFilm.getVersion(), expectedVersion);
+            throw new PreconditionFailedException("Фильм с id = " + film.getId() + " изменён другим запросом.");
+        }
         filmValidator.validReleaseDate(film);
-        Film updatedFilm = filmStorage.getFilmById(film.getId());
+        Film updatedFilm = storedFilm.toBuilder().build();
         if (film.getName() != null) {
             updatedFilm.setName(film.getName());
             log.debug("Изменено значение поля name на: {}", film.getName());
@@ -60,69 +134,225 @@ public class FilmService {
             updatedFilm.setDuration(film.getDuration());
             log.debug("Изменено значение поля duration на: {}", film.getDuration());
         }
-        filmStorage.updateFilm(updatedFilm);
+        updatedFilm = expectedVersion == null
+                ? filmStorage.updateFilm(updatedFilm)
+                : filmStorage.updateFilm(updatedFilm, expectedVersion);
+        filmSearchService.index(updatedFilm);
         log.info("Данные фильма с id = {} успешно обновлены.", film.getId());
         return updatedFilm;
     }
 
     public void deleteFilmById(Integer id) {
-        log.info("Обработка запроса на удаление фильма.");
-        if (filmStorage.getFilmById(id) == null) {
+        log.debug("Обработка запроса на удаление фильма.");
+        Film storedFilm = filmStorage.getFilmById(id);
+        if (storedFilm == null) {
             log.error("Фильм с id = {} не существует.", id);
             throw new NotFoundException("Фильм с id = " + id + " не существует.");
         }
         log.info("Запрос на удаление фильма с id = {} успешно обработан.", id);
         filmStorage.deleteFilmById(id);
+        trendingService.forget(id);
+        filmSearchService.remove(id);
     }
 
     public List<Film> getAllFilms() {
-        log.info("Обработка запроса на получение списка всех фильмов.");
+        log.debug("Обработка запроса на получение списка всех фильмов.");
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getFilmsPage(Integer cursor, Integer limit) {
+        log.debug("Обработка запроса на получение страницы фильмов после id = {}.", cursor);
+        checkPageLimit(limit);
+        return filmStorage.getFilmsPage(cursor, limit);
+    }
+
+    public List<FilmSummary> getAllFilmSummaries() {
+        log.debug("Обработка запроса на получение списка всех фильмов в сокращённом виде.");
+        return filmStorage.getAllFilmSummaries();
+    }
+
+    public List<FilmSummary> getFilmSummariesPage(Integer cursor, Integer limit) {
+        log.debug("Обработка запроса на получение страницы фильмов в сокращённом виде после id = {}.", cursor);
+        checkPageLimit(limit);
+        return filmStorage.getFilmSummariesPage(cursor, limit);
+    }
+
+    public List<Film> getFilteredFilms(FilmFilter filter, Integer cursor, Integer limit) {
+        log.debug("Обработка запроса на получение фильмов по фильтру {} после id = {}.", filter, cursor);
+        checkFilter(filter, limit);
+        return filmStorage.getFilmsByFilter(filter, cursor, limit == null ? Integer.MAX_VALUE : limit);
+    }
+
+    public List<FilmSummary> getFilteredFilmSummaries(FilmFilter filter, Integer cursor, Integer limit) {
+        log.debug("Обработка запроса на получение фильмов в сокращённом виде по фильтру {} после id = {}.", filter,
+                cursor);
+        checkFilter(filter, limit);
+        return filmStorage.getFilmSummariesByFilter(filter, cursor, limit == null ? Integer.MAX_VALUE : limit);
+    }
+
+    public int[] getFilmLikes(Integer filmId, Integer cursor, Integer limit) {
+        log.debug("Обработка запроса на получение лайков фильма с id = {} после userId = {}.", filmId, cursor);
+        checkPageLimit(limit);
+        getFilmById(filmId);
+        return filmStorage.getFilmLikes(filmId, cursor, limit);
+    }
+
     public Film getFilmById(Integer id) {
-        log.info("Обработка запроса на получение фильма по id.");
+        log.debug("Обработка запроса на получение фильма по id.");
         Film requiredFilm = filmStorage.getFilmById(id);
         if (requiredFilm == null) {
             log.error("Ошибка получения фильма фильм с id = {} не найден.", id);
             throw new NotFoundException("Фильм с id = " + id + " не найден.");
         }
-        log.info("Запрос на получение пользователя с id = {} успешно обработан.", id);
+        log.debug("Запрос на получение пользователя с id = {} успешно обработан.", id);
         return requiredFilm;
     }
 
     public void addLike(Integer filmId, Integer userId) {
-        log.info("Обработка запроса на добавление лайка к фильму.");
+        log.debug("Обработка запроса на добавление лайка к фильму.");
         Film requiredFilm = filmStorage.getFilmById(filmId);
         if (requiredFilm == null || userStorage.getUserById(userId) == null) {
             log.error("Ошибка добавления лайка к фильму, некорректные значения filmId или userId.");
             throw new NotFoundException("Ошибка, проверьте правильность ввода filmId и userId.");
         }
-        requiredFilm.getLikes().add(userId);
-        log.info("Запрос на добавление лайка к фильму с filmId = {} пользователем c userId = {} обработан.",
+        if (filmStorage.addLike(filmId, userId)) {
+            likesAdded.increment();
+            eventBus.publish(new MutationEvent.LikeAdded(filmId, userId));
+        }
+        log.debug("Запрос на добавление лайка к фильму с filmId = {} пользователем c userId = {} обработан.",
                 filmId, userId);
     }
 
+    public List<BatchItemResult> addLikes(List<Like> likes, int firstIndex) {
+        log.debug("Обработка запроса на пакетное добавление {} лайков.", likes.size());
+        List<BatchItemResult> results = new ArrayList<>(likes.size());
+        for (int from = 0; from < likes.size(); from += BATCH_CHUNK_SIZE) {
+            List<Like> chunk = likes.subList(from, Math.min(likes.size(), from + BATCH_CHUNK_SIZE));
+            Set<Integer> filmIds = new HashSet<>();
+            Set<Integer> userIds = new HashSet<>();
+            for (Like like : chunk) {
+                if (like != null && like.getFilmId() != null && like.getUserId() != null) {
+                    filmIds.add(like.getFilmId());
+                    userIds.add(like.getUserId());
+                }
+            }
+            Set<Integer> existingFilmIds = new HashSet<>();
+            filmStorage.getFilmsByIds(toIntArray(filmIds)).forEach(film -> existingFilmIds.add(film.getId()));
+            Set<Integer> existingUserIds = new HashSet<>();
+            userStorage.getUsersByIds(toIntArray(userIds)).forEach(user -> existingUserIds.add(user.getId()));
+
+            List<Like> validLikes = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Like like = chunk.get(i);
+                int index = firstIndex + from + i;
+                if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+                    results.add(BatchItemResult.failed(index, HttpStatus.BAD_REQUEST.value(),
+                            "Необходимо указать filmId и userId."));
+                } else if (!existingFilmIds.contains(like.getFilmId())) {
+                    results.add(BatchItemResult.failed(index, HttpStatus.NOT_FOUND.value(),
+                            "Фильм с id = " + like.getFilmId() + " не найден."));
+                } else if (!existingUserIds.contains(like.getUserId())) {
+                    results.add(BatchItemResult.failed(index, HttpStatus.NOT_FOUND.value(),
+                            "Пользователь с id = " + like.getUserId() + " не найден."));
+                } else {
+                    validLikes.add(like);
+                    results.add(BatchItemResult.ok(index, like.getFilmId()));
+                }
+            }
+            List<Like> addedLikes = filmStorage.addLikes(validLikes);
+            likesAdded.increment(addedLikes.size());
+            for (Like like : addedLikes) {
+                eventBus.publish(new MutationEvent.LikeAdded(like.getFilmId(), like.getUserId()));
+            }
+        }
+        log.info("Пакетное добавление лайков обработано, добавлено {} из {}.", countSucceeded(results),
+                likes.size());
+        return results;
+    }
+
     public void deleteLike(Integer filmId, Integer userId) {
-        log.info("Обработка запроса на удаление лайка к фильму.");
+        log.debug("Обработка запроса на удаление лайка к фильму.");
         Film requiredFilm = filmStorage.getFilmById(filmId);
         if (requiredFilm == null || userStorage.getUserById(userId) == null) {
             log.error("Ошибка удаления лайка к фильму, некорректные значения filmId или userId.");
             throw new NotFoundException("Ошибка, проверьте правильность ввода filmId и userId.");
         }
-        requiredFilm.getLikes().remove(userId);
-        log.info("Запрос на удаление лайка к фильму с filmId = {} пользователем c userId = {} обработан.",
+        if (filmStorage.deleteLike(filmId, userId)) {
+            likesRemoved.increment();
+            eventBus.publish(new MutationEvent.LikeRemoved(filmId, userId));
+        }
+        log.debug("Запрос на удаление лайка к фильму с filmId = {} пользователем c userId = {} обработан.",
                 filmId, userId);
     }
 
+    public String getVersionGeneration() {
+        return filmStorage.getVersionGeneration();
+    }
+
     public List<Film> getPopularFilms(Integer count) {
-        return filmStorage.getAllFilms()
-                .stream()
-                .sorted(Comparator.comparingInt(film -> film.getLikes().size()))
-                .toList()
-                .reversed()
-                .stream()
-                .limit(count)
-                .toList();
+        return filmStorage.getPopularFilms(count);
+    }
+
+    public List<FilmSummary> getPopularFilmSummaries(Integer count) {
+        return filmStorage.getPopularFilmSummaries(count);
+    }
+
+    public List<Film> getTrendingFilms(TrendingWindow window, Integer count) {
+        log.debug("Обработка запроса на получение {} популярных за {} фильмов.", count, window.getLabel());
+        return filmStorage.getFilmsByIds(trendingService.getTrending(window, count));
+    }
+
+    public List<Film> searchFilms(String query, Integer count, boolean boostByLikes) {
+        log.debug("Обработка запроса на поиск фильмов по запросу \"{}\".", query);
+        return filmStorage.getFilmsByIds(filmSearchService.search(query, count, boostByLikes));
+    }
+
+    private String validateNewFilm(Film film) {
+        if (film == null) {
+            return "Некорректная запись фильма.";
+        }
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            Set<String> errors = new HashSet<>();
+            violations.forEach(violation -> errors.add(violation.getMessage()));
+            return errors.toString();
+        }
+        try {
+            filmValidator.validReleaseDate(film);
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private static long countSucceeded(List<BatchItemResult> results) {
+        return results.stream().filter(result -> result.getError() == null).count();
+    }
+
+    private static int[] toIntArray(Set<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void checkFilter(FilmFilter filter, Integer limit) {
+        if (limit != null) {
+            checkPageLimit(limit);
+        }
+        if (filter.releasedFrom() != null && filter.releasedTo() != null
+                && filter.releasedFrom().isAfter(filter.releasedTo())) {
+            log.error("Ошибка валидации фильтра {}", filter);
+            throw new ValidationException("Параметр releasedFrom не может быть позже releasedTo.");
+        }
+        if (filter.minDuration() != null && filter.maxDuration() != null
+                && filter.minDuration() > filter.maxDuration()) {
+            log.error("Ошибка валидации фильтра {}", filter);
+            throw new ValidationException("Параметр minDuration не может быть больше maxDuration.");
+        }
+    }
+
+    private void checkPageLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            log.error("Ошибка валидации limit = {}", limit);
+            throw new ValidationException("Параметр limit должен быть больше нуля.");
+        }
     }
 }
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.IntIntHashMap;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+@Service
+@Slf4j
+public class RecommendationService {
+
+    private static final int EXCLUDED = Integer.MIN_VALUE / 2;
+
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final int maxFanOut;
+    private final int similarUsers;
+    private final int parallelThreshold;
+
+    @Autowired
+    public RecommendationService(UserStorage userStorage,
+                                 FilmStorage filmStorage,
+                                 @Value("${filmorate.recommendations.max-fan-out:1000}") int maxFanOut,
+                                 @Value("${filmorate.recommendations.similar-users:10}") int similarUsers,
+                                 @Value("${filmorate.recommendations.parallel-threshold:64}") int parallelThreshold) {
+        this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.maxFanOut = maxFanOut;
+        this.similarUsers = similarUsers;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /* Как и у лайков в getFilmRecommendations, у каждого друга берутся только maxFanOut друзей с меньшими id. */
+    public List<User> getFriendRecommendations(Integer userId, Integer count) {
+        log.debug("Обработка запроса на получение рекомендаций друзей для пользователя с id = {}.", userId);
+        checkCount(count);
+        User user = getExistingUser(userId);
+        int[] friendIds = user.getFriends().toIntArray();
+        IntIntHashMap mutualFriends = new IntIntHashMap(Math.min(friendIds.length * 16, 1 << 20));
+        mutualFriends.put(userId, EXCLUDED);
+        for (int friendId : friendIds) {
+            mutualFriends.put(friendId, EXCLUDED);
+        }
+        for (int friendId : friendIds) {
+            User friend = userStorage.getUserById(friendId);
+            if (friend == null) {
+                continue;
+            }
+            for (int candidateId : friend.getFriends().sortedPage(null, maxFanOut)) {
+                mutualFriends.addTo(candidateId, 1);
+            }
+        }
+        log.debug("Запрос на получение рекомендаций друзей для пользователя с id = {} обработан.", userId);
+        return userStorage.getUsersByIds(topPositive(mutualFriends, count));
+    }
+
+    public List<Film> getFilmRecommendations(Integer userId, Integer count) {
+        log.debug("Обработка запроса на получение рекомендаций фильмов для пользователя с id = {}.", userId);
+        checkCount(count);
+        getExistingUser(userId);
+        int[] likedFilmIds = filmStorage.getLikedFilmIds(userId);
+        if (likedFilmIds.length == 0) {
+            return List.of();
+        }
+        IntIntHashMap overlaps = likedFilmIds.length < parallelThreshold
+                ? countOverlaps(userId, likedFilmIds, 0, likedFilmIds.length)
+                : ForkJoinPool.commonPool().invoke(new OverlapTask(userId, likedFilmIds, 0, likedFilmIds.length));
+        int[] similarUserIds = topPositive(overlaps, similarUsers);
+
+        IntIntHashMap filmScores = new IntIntHashMap();
+        for (int filmId : likedFilmIds) {
+            filmScores.put(filmId, EXCLUDED);
+        }
+        for (int similarUserId : similarUserIds) {
+            int overlap = overlaps.get(similarUserId, 0);
+            for (int filmId : filmStorage.getLikedFilmIds(similarUserId)) {
+                filmScores.addTo(filmId, overlap);
+            }
+        }
+        List<Film> recommendations = new ArrayList<>(count);
+        for (int filmId : topPositive(filmScores, count)) {
+            Film film = filmStorage.getFilmById(filmId);
+            if (film != null) {
+                recommendations.add(film);
+            }
+        }
+        log.debug("Запрос на получение рекомендаций фильмов для пользователя с id = {} обработан.", userId);
+        return recommendations;
+    }
+
+    private IntIntHashMap countOverlaps(int userId, int[] likedFilmIds, int from, int to) {
+        IntIntHashMap overlaps = new IntIntHashMap();
+        for (int i = from; i < to; i++) {
+            Film film = filmStorage.getFilmById(likedFilmIds[i]);
+            if (film == null) {
+                continue;
+            }
+            for (int likerId : film.getLikes().sortedPage(null, maxFanOut)) {
+                if (likerId != userId) {
+                    overlaps.addTo(likerId, 1);
+                }
+            }
+        }
+        return overlaps;
+    }
+
+    private static int[] topPositive(IntIntHashMap scores, int count) {
+        TopK topK = new TopK(count);
+        scores.forEach((id, score) -> {
+            if (score > 0) {
+                topK.offer(id, score);
+            }
+        });
+        return topK.idsByScoreDescending();
+    }
+
+    private void checkCount(Integer count) {
+        if (count == null || count <= 0) {
+            log.error("Ошибка получения рекомендаций, некорректное значение count = {}.", count);
+            throw new ValidationException("Параметр count должен быть больше нуля.");
+        }
+    }
+
+    private User getExistingUser(Integer userId) {
+        User user = userStorage.getUserById(userId);
+        if (user == null) {
+            log.error("Ошибка получения рекомендаций, пользователь с id = {} не найден.", userId);
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден.");
+        }
+        return user;
+    }
+
+    private class OverlapTask extends RecursiveTask<IntIntHashMap> {
+
+        private final int userId;
+        private final int[] likedFilmIds;
+        private final int from;
+        private final int to;
+
+        OverlapTask(int userId, int[] likedFilmIds, int from, int to) {
+            this.userId = userId;
+            this.likedFilmIds = likedFilmIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntIntHashMap compute() {
+            if (to - from <= parallelThreshold) {
+                return countOverlaps(userId, likedFilmIds, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            OverlapTask left = new OverlapTask(userId, likedFilmIds, from, middle);
+            left.fork();
+            IntIntHashMap right = new OverlapTask(userId, likedFilmIds, middle, to).compute();
+            IntIntHashMap merged = left.join();
+            right.forEach(merged::addTo);
+            return merged;
+        }
+    }
+}
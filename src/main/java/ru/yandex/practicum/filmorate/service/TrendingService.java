@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.MutationEvent;
+import ru.yandex.practicum.filmorate.event.MutationEventListener;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.util.SlidingWindowCounter;
+import ru.yandex.practicum.filmorate.util.TopK;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Лайки считаются по фильмам, по одному SlidingWindowCounter на окно; писатели трогают только счётчики своего
+ * фильма. Рейтинг пересобирается в refresh() по расписанию, так что getTrending() — копия не более maxCount id.
+ * Счётчики фильмов без лайков дольше самого широкого окна при refresh() удаляются. Удалённый фильм оставляет
+ * отметку, которая поглощает ещё не доставленные шиной лайки и удаляется так же, по простою.
+ */
+@Service
+@Slf4j
+public class TrendingService implements MutationEventListener {
+
+    private static final TrendingWindow[] WINDOWS = TrendingWindow.values();
+    private static final long IDLE_MILLIS = Duration.ofDays(7).toMillis();
+
+    private final Map<Integer, FilmCounters> counters = new ConcurrentHashMap<>();
+    private final int maxCount;
+    private final Clock clock;
+    private volatile Map<TrendingWindow, int[]> rankings;
+
+    @Autowired
+    public TrendingService(@Value("${filmorate.trending.max-count:100}") int maxCount) {
+        this(maxCount, Clock.systemUTC());
+    }
+
+    public TrendingService(int maxCount, Clock clock) {
+        this.maxCount = maxCount;
+        this.clock = clock;
+        Map<TrendingWindow, int[]> empty = new EnumMap<>(TrendingWindow.class);
+        for (TrendingWindow window : TrendingWindow.values()) {
+            empty.put(window, new int[0]);
+        }
+        this.rankings = empty;
+    }
+
+    public void recordLike(int filmId) {
+        record(filmId, 1);
+    }
+
+    public void recordUnlike(int filmId) {
+        record(filmId, -1);
+    }
+
+    @Override
+    public void onEvents(List<MutationEvent> events) {
+        for (MutationEvent event : events) {
+            if (event instanceof MutationEvent.LikeAdded like) {
+                recordLike(like.filmId());
+            } else if (event instanceof MutationEvent.LikeRemoved like) {
+                recordUnlike(like.filmId());
+            }
+        }
+    }
+
+    public void forget(int filmId) {
+        counters.put(filmId, new FilmCounters(true, clock.millis()));
+    }
+
+    public int[] getTrending(TrendingWindow window, Integer count) {
+        if (count == null || count <= 0 || count > maxCount) {
+            log.error("Ошибка валидации count = {}", count);
+            throw new ValidationException("Параметр count должен быть от 1 до " + maxCount + ".");
+        }
+        int[] ranking = rankings.get(window);
+        return Arrays.copyOf(ranking, Math.min(count, ranking.length));
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.trending.refresh-interval-ms:5000}")
+    public void refresh() {
+        long start = System.nanoTime();
+        long now = clock.millis();
+        TopK[] tops = new TopK[WINDOWS.length];
+        int[] currentBuckets = new int[WINDOWS.length];
+        for (int i = 0; i < WINDOWS.length; i++) {
+            tops[i] = new TopK(maxCount);
+            currentBuckets[i] = WINDOWS[i].bucketAt(now);
+        }
+        for (Map.Entry<Integer, FilmCounters> entry : counters.entrySet()) {
+            FilmCounters filmCounters = entry.getValue();
+            if (now - filmCounters.lastUpdate > IDLE_MILLIS) {
+                // record() пишет под той же блокировкой ключа, поэтому простой проверяется заново перед удалением
+                counters.computeIfPresent(entry.getKey(), (id, current) ->
+                        current == filmCounters && now - current.lastUpdate > IDLE_MILLIS ? null : current);
+                continue;
+            }
+            if (filmCounters.isDeleted()) {
+                continue;
+            }
+            for (int i = 0; i < WINDOWS.length; i++) {
+                int score = filmCounters.windows[i].sum(currentBuckets[i]);
+                if (score > 0) {
+                    tops[i].offer(entry.getKey(), score);
+                }
+            }
+        }
+        Map<TrendingWindow, int[]> refreshed = new EnumMap<>(TrendingWindow.class);
+        for (int i = 0; i < WINDOWS.length; i++) {
+            refreshed.put(WINDOWS[i], tops[i].idsByScoreDescending());
+        }
+        rankings = refreshed;
+        log.debug("Рейтинг трендов пересчитан для {} фильмов за {} мкс.", counters.size(),
+                (System.nanoTime() - start) / 1000);
+    }
+
+    /* События одного фильма приходят из одного потока шины, так что блокировка ключа почти никогда не занята. */
+    private void record(int filmId, int delta) {
+        long now = clock.millis();
+        counters.compute(filmId, (id, current) -> {
+            if (current == null && delta < 0) {
+                return null;
+            }
+            if (current != null && current.isDeleted()) {
+                return current;
+            }
+            FilmCounters filmCounters = current == null ? new FilmCounters(false, now) : current;
+            filmCounters.lastUpdate = now;
+            for (int i = 0; i < WINDOWS.length; i++) {
+                filmCounters.windows[i].add(WINDOWS[i].bucketAt(now), delta);
+            }
+            return filmCounters;
+        });
+    }
+
+    private static class FilmCounters {
+
+        /* null у отметки об удалении фильма. */
+        private final SlidingWindowCounter[] windows;
+        private volatile long lastUpdate;
+
+        private FilmCounters(boolean deleted, long lastUpdate) {
+            this.lastUpdate = lastUpdate;
+            if (deleted) {
+                windows = null;
+                return;
+            }
+            windows = new SlidingWindowCounter[WINDOWS.length];
+            for (TrendingWindow window : WINDOWS) {
+                windows[window.ordinal()] = new SlidingWindowCounter(window.getBuckets());
+            }
+        }
+
+        private boolean isDeleted() {
+            return windows == null;
+        }
+    }
+}
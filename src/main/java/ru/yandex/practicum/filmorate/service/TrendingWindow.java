@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.Duration;
+
+/* Окно трендов и его разбиение на корзины: чем длиннее окно, тем грубее шаг, в котором оно сдвигается. */
+public enum TrendingWindow {
+    HOUR("1h", Duration.ofMinutes(1), 60),
+    DAY("24h", Duration.ofMinutes(15), 96),
+    WEEK("7d", Duration.ofHours(1), 168);
+
+    private final String label;
+    private final long bucketMillis;
+    private final int buckets;
+
+    TrendingWindow(String label, Duration bucket, int buckets) {
+        this.label = label;
+        this.bucketMillis = bucket.toMillis();
+        this.buckets = buckets;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public int bucketAt(long epochMillis) {
+        return (int) (epochMillis / bucketMillis);
+    }
+
+    public static TrendingWindow parse(String value) {
+        for (TrendingWindow window : values()) {
+            if (window.label.equalsIgnoreCase(value)) {
+                return window;
+            }
+        }
+        throw new ValidationException("Параметр window должен принимать значение 1h, 24h или 7d.");
+    }
+}
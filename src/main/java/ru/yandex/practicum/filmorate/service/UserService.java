@@ -1,45 +1,135 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.MutationEvent;
+import ru.yandex.practicum.filmorate.event.MutationEventBus;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.NullEqualsException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class UserService {
 
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
     private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final Validator validator;
+    private final MutationEventBus eventBus;
+    private final Counter friendshipsAdded;
+    private final Counter friendshipsRemoved;
+    private final Counter likesRemoved;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, FilmStorage filmStorage, Validator validator,
+                       MutationEventBus eventBus, MeterRegistry meterRegistry) {
         this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.validator = validator;
+        this.eventBus = eventBus;
+        this.friendshipsAdded = meterRegistry.counter("filmorate.friendships", "action", "added");
+        this.friendshipsRemoved = meterRegistry.counter("filmorate.friendships", "action", "removed");
+        this.likesRemoved = meterRegistry.counter("filmorate.likes", "action", "removed");
     }
 
     public User createUser(User user) {
-        log.info("Обработка запроса на добавление нового пользователя.");
+        log.debug("Обработка запроса на добавление нового пользователя.");
         checkName(user);
         userStorage.createUser(user);
         log.info("Пользователь с login = {} успешно создан.", user.getLogin());
         return user;
     }
 
+    public List<BatchItemResult> createUsers(List<User> users, int firstIndex) {
+        log.debug("Обработка запроса на пакетное добавление {} пользователей.", users.size());
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for (int from = 0; from < users.size(); from += BATCH_CHUNK_SIZE) {
+            List<User> chunk = users.subList(from, Math.min(users.size(), from + BATCH_CHUNK_SIZE));
+            BatchItemResult[] chunkResults = new BatchItemResult[chunk.size()];
+            List<User> validUsers = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                String error = validateNewUser(chunk.get(i));
+                if (error == null) {
+                    checkName(chunk.get(i));
+                    validUsers.add(chunk.get(i));
+                } else {
+                    chunkResults[i] = BatchItemResult.failed(firstIndex + from + i, HttpStatus.BAD_REQUEST.value(),
+                            error);
+                }
+            }
+            try {
+                userStorage.createUsers(validUsers);
+            } catch (ConflictException e) {
+                // хранилище отклонило пакет целиком, по одному сохраняем всех, чьи email и login свободны;
+                // идентификатор от отклонённого пакета не должен попасть ни в повторную вставку, ни в ответ
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (chunkResults[i] == null) {
+                        chunk.get(i).setId(null);
+                        try {
+                            userStorage.createUser(chunk.get(i));
+                        } catch (ConflictException conflict) {
+                            chunk.get(i).setId(null);
+                            chunkResults[i] = BatchItemResult.failed(firstIndex + from + i,
+                                    HttpStatus.CONFLICT.value(), conflict.getMessage());
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunkResults[i] == null) {
+                    chunkResults[i] = BatchItemResult.ok(firstIndex + from + i, chunk.get(i).getId());
+                }
+            }
+            results.addAll(Arrays.asList(chunkResults));
+        }
+        log.info("Пакетное добавление пользователей обработано, добавлено {} из {}.", countSucceeded(results),
+                users.size());
+        return results;
+    }
+
     public User updateUser(User user) {
-        log.info("Обработка запроса на обновление данных пользователя.");
+        return updateUser(user, null);
+    }
+
+    /* С expectedVersion изменения накладываются на ту версию, которую видел клиент, иначе 412. */
+    public User updateUser(User user, Long expectedVersion) {
+        log.debug("Обработка запроса на обновление данных пользователя.");
         if (user.getId() == null) {
             log.error("Ошибка валидации, id = null, при обновлении данных пользователя.");
             throw new NullEqualsException("Id должен быть указан.");
         }
-        if (userStorage.getUserById(user.getId()) == null) {
+        User storedUser = userStorage.getUserById(user.getId());
+        if (storedUser == null) {
             log.error("Ошибка обновления, пользователя с id = {} не существует.", user.getId());
             throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден.");
         }
-        User updatedUser = userStorage.getUserById(user.getId());
+        if (expectedVersion != null && storedUser.getVersion() != expectedVersion) {
+            log.error("Ошибка обновления пользователя с id = {}, версия {} вместо ожидаемой {}.", user.getId(),
+                    storedUser.getVersion(), expectedVersion);
+            throw new PreconditionFailedException("Пользователь с id = " + user.getId() + " изменён другим запросом.");
+        }
+        User updatedUser = storedUser.toBuilder().build();
         if (user.getEmail() != null) {
             updatedUser.setEmail(user.getEmail());
             log.debug("Изменено значение поля email на: {}.", user.getEmail());
@@ -59,93 +149,199 @@ public class UserService {
             updatedUser.setBirthday(user.getBirthday());
             log.debug("Изменено значение поля birthday на: {}.", user.getBirthday());
         }
-        userStorage.updateUser(updatedUser);
+        updatedUser = expectedVersion == null
+                ? userStorage.updateUser(updatedUser)
+                : userStorage.updateUser(updatedUser, expectedVersion);
         log.info("Данные пользователя с login = {} успешно обновлены.", user.getLogin());
         return updatedUser;
     }
 
     public List<User> getAllUsers() {
-        log.info("Обработка запроса на получение всех пользователей.");
+        log.debug("Обработка запроса на получение всех пользователей.");
         return userStorage.getAllUsers();
     }
 
+    public List<User> getUsersPage(Integer cursor, Integer limit) {
+        log.debug("Обработка запроса на получение страницы пользователей после id = {}.", cursor);
+        if (limit == null || limit <= 0) {
+            log.error("Ошибка валидации limit = {}", limit);
+            throw new ValidationException("Параметр limit должен быть больше нуля.");
+        }
+        return userStorage.getUsersPage(cursor, limit);
+    }
+
     public User getUserById(Integer id) {
-        log.info("Обработка запроса на получение данных пользователя.");
+        log.debug("Обработка запроса на получение данных пользователя.");
         User requiredUser = userStorage.getUserById(id);
         if (requiredUser == null) {
             log.error("Ошибка получения пользователя, пользователь с id = {} не найден.", id);
             throw new NotFoundException("Пользователь с id = " + id + " не найден.");
         }
-        log.info("Запрос на получение данных пользователя успешно обработан.");
+        log.debug("Запрос на получение данных пользователя успешно обработан.");
+        return requiredUser;
+    }
+
+    public User getUserByEmail(String email) {
+        log.debug("Обработка запроса на получение пользователя по email.");
+        User requiredUser = email == null ? null : userStorage.getUserByEmail(email);
+        if (requiredUser == null) {
+            log.error("Ошибка получения пользователя, пользователь с email = {} не найден.", email);
+            throw new NotFoundException("Пользователь с email = " + email + " не найден.");
+        }
+        return requiredUser;
+    }
+
+    public User getUserByLogin(String login) {
+        log.debug("Обработка запроса на получение пользователя по login.");
+        User requiredUser = userStorage.getUserByLogin(login);
+        if (requiredUser == null) {
+            log.error("Ошибка получения пользователя, пользователь с login = {} не найден.", login);
+            throw new NotFoundException("Пользователь с login = " + login + " не найден.");
+        }
         return requiredUser;
     }
 
     public void deleteUserById(Integer id) {
-        log.info("Обработка запроса на удаление пользователя с id = {}.", id);
+        log.debug("Обработка запроса на удаление пользователя с id = {}.", id);
         User requiredUser = userStorage.getUserById(id);
         if (requiredUser == null) {
             log.error("Ошибка удаления пользователя, пользователь с id = {} не найден.", id);
             throw new NotFoundException("Пользователь с id = " + id + " не найден.");
         }
-        log.info("Пользователь с id = {} удален.", id);
+        // лайки снимаются до удаления пользователя: каскад в базе удалил бы их молча, без списка изменённых фильмов
+        int[] unlikedFilmIds = filmStorage.deleteUserLikes(id);
         userStorage.deleteUserById(id);
+        likesRemoved.increment(unlikedFilmIds.length);
+        for (int filmId : unlikedFilmIds) {
+            eventBus.publish(new MutationEvent.LikeRemoved(filmId, id));
+        }
+        log.info("Пользователь с id = {} удален.", id);
     }
 
     public void addFriend(Integer userId, Integer friendId) {
-        log.info("Обработка запроса на добавление пользователя в друзья.");
+        log.debug("Обработка запроса на добавление пользователя в друзья.");
         User user = userStorage.getUserById(userId);
         User friend = userStorage.getUserById(friendId);
         if (user == null || friend == null) {
             log.error("Ошибка добавления друга, некорректно указан userId или friendId.");
             throw new NotFoundException("Ошибка, проверьте правильность ввода userId и friendId.");
         }
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
-        log.info("Пользователь c id = {} добавил в друзья пользователя с id = {}.", userId, friendId);
+        if (userStorage.addFriend(userId, friendId)) {
+            friendshipsAdded.increment();
+            eventBus.publish(new MutationEvent.FriendAdded(userId, friendId));
+        }
+        log.debug("Пользователь c id = {} добавил в друзья пользователя с id = {}.", userId, friendId);
+    }
+
+    public List<BatchItemResult> addFriends(List<Friendship> friendships, int firstIndex) {
+        log.debug("Обработка запроса на пакетное добавление {} дружб.", friendships.size());
+        List<BatchItemResult> results = new ArrayList<>(friendships.size());
+        for (int from = 0; from < friendships.size(); from += BATCH_CHUNK_SIZE) {
+            List<Friendship> chunk = friendships.subList(from, Math.min(friendships.size(), from + BATCH_CHUNK_SIZE));
+            Set<Integer> userIds = new HashSet<>();
+            for (Friendship friendship : chunk) {
+                if (friendship != null && friendship.getUserId() != null && friendship.getFriendId() != null) {
+                    userIds.add(friendship.getUserId());
+                    userIds.add(friendship.getFriendId());
+                }
+            }
+            Set<Integer> existingUserIds = new HashSet<>();
+            userStorage.getUsersByIds(userIds.stream().mapToInt(Integer::intValue).toArray())
+                    .forEach(user -> existingUserIds.add(user.getId()));
+
+            List<Friendship> validFriendships = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Friendship friendship = chunk.get(i);
+                int index = firstIndex + from + i;
+                if (friendship == null || friendship.getUserId() == null || friendship.getFriendId() == null) {
+                    results.add(BatchItemResult.failed(index, HttpStatus.BAD_REQUEST.value(),
+                            "Необходимо указать userId и friendId."));
+                } else if (!existingUserIds.contains(friendship.getUserId())
+                        || !existingUserIds.contains(friendship.getFriendId())) {
+                    results.add(BatchItemResult.failed(index, HttpStatus.NOT_FOUND.value(),
+                            "Ошибка, проверьте правильность ввода userId и friendId."));
+                } else {
+                    validFriendships.add(friendship);
+                    results.add(BatchItemResult.ok(index, friendship.getUserId()));
+                }
+            }
+            List<Friendship> addedFriendships = userStorage.addFriends(validFriendships);
+            friendshipsAdded.increment(addedFriendships.size());
+            for (Friendship friendship : addedFriendships) {
+                eventBus.publish(new MutationEvent.FriendAdded(friendship.getUserId(), friendship.getFriendId()));
+            }
+        }
+        log.info("Пакетное добавление дружб обработано, добавлено {} из {}.", countSucceeded(results),
+                friendships.size());
+        return results;
     }
 
     public void deleteFriend(Integer userId, Integer friendId) {
-        log.info("Обработка запроса на удаление пользователя из друзей.");
+        log.debug("Обработка запроса на удаление пользователя из друзей.");
         User user = userStorage.getUserById(userId);
         User friend = userStorage.getUserById(friendId);
         if (user == null || friend == null) {
             log.error("Ошибка удаления друга, некорректно указан userId или friendId.");
             throw new NotFoundException("Ошибка, проверьте правильность ввода userId и friendId.");
         }
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
-        log.info("Пользователь c id = {} удалил из друзей пользователя с id = {}.", userId, friendId);
+        if (userStorage.deleteFriend(userId, friendId)) {
+            friendshipsRemoved.increment();
+            eventBus.publish(new MutationEvent.FriendRemoved(userId, friendId));
+        }
+        log.debug("Пользователь c id = {} удалил из друзей пользователя с id = {}.", userId, friendId);
+    }
+
+    public String getVersionGeneration() {
+        return userStorage.getVersionGeneration();
     }
 
     public List<User> getUsersFriends(Integer id) {
-        log.info("Обработка запроса на получение списка друзей пользователя.");
+        log.debug("Обработка запроса на получение списка друзей пользователя.");
         User user = userStorage.getUserById(id);
         if (user == null) {
             log.error("Ошибка получения списка друзей пользователя,  пользователь с id = {} не найден.", id);
             throw new NotFoundException("Пользователь с id = " + id + " не найден.");
         }
-        log.info("Запрос на получение списка друзей пользователя с id = {} успешно обработан.", id);
-        return user.getFriends()
-                .stream()
-                .map(userStorage::getUserById)
-                .toList();
+        log.debug("Запрос на получение списка друзей пользователя с id = {} успешно обработан.", id);
+        return userStorage.getFriends(id);
     }
 
     public List<User> getCommonUsersFriends(Integer userId, Integer otherId) {
-        log.info("Обработка запроса на получение списка общих друзей.");
-        User user = getUserById(userId);
-        User otherUser = getUserById(otherId);
-        if (user == null || otherUser == null) {
-            log.error("Ошибка получения списка общих друзей, некорректно указан userId или otherId.");
-            throw new NotFoundException("Ошибка, проверьте правильность ввода userId и otherId.");
-        }
-        log.info("Запрос на получение общего списка друзей пользователя с id = {} и пользователя с id = {} выполнен.",
-                userId, otherId);
-        return user.getFriends()
-                .stream()
-                .filter(otherUser.getFriends()::contains)
-                .map(userStorage::getUserById)
-                .toList();
+        return getCommonUsersFriends(userId, List.of(otherId));
+    }
+
+    public List<User> getCommonUsersFriends(Integer userId, List<Integer> otherIds) {
+        log.debug("Обработка запроса на получение списка общих друзей.");
+        if (otherIds == null || otherIds.isEmpty()) {
+            log.error("Ошибка получения списка общих друзей, не указан ни один otherId.");
+            throw new ValidationException("Необходимо указать хотя бы один otherId.");
+        }
+        List<Integer> userIds = new ArrayList<>(otherIds.size() + 1);
+        userIds.add(getUserById(userId).getId());
+        for (Integer otherId : otherIds) {
+            userIds.add(getUserById(otherId).getId());
+        }
+        List<User> commonFriends = userStorage.getCommonFriends(userIds);
+        log.debug("Запрос на получение общего списка друзей пользователя с id = {} и пользователей с id = {} выполнен.",
+                userId, otherIds);
+        return commonFriends;
+    }
+
+    private String validateNewUser(User user) {
+        if (user == null) {
+            return "Некорректная запись пользователя.";
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            Set<String> errors = new HashSet<>();
+            violations.forEach(violation -> errors.add(violation.getMessage()));
+            return errors.toString();
+        }
+        return null;
+    }
+
+    private static long countSucceeded(List<BatchItemResult> results) {
+        return results.stream().filter(result -> result.getError() == null).count();
     }
 
     private void checkName(User user) {
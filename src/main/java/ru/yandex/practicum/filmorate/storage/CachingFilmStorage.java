@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final Cache<Integer, Film> cache;
+
+    public CachingFilmStorage(FilmStorage delegate, long maximumSize) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public Cache<Integer, Film> getCache() {
+        return cache;
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return delegate.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilmsPage(Integer cursor, int limit) {
+        return delegate.getFilmsPage(cursor, limit);
+    }
+
+    @Override
+    public List<FilmSummary> getAllFilmSummaries() {
+        return delegate.getAllFilmSummaries();
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesPage(Integer cursor, int limit) {
+        return delegate.getFilmSummariesPage(cursor, limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByFilter(FilmFilter filter, Integer cursor, int limit) {
+        return delegate.getFilmsByFilter(filter, cursor, limit);
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesByFilter(FilmFilter filter, Integer cursor, int limit) {
+        return delegate.getFilmSummariesByFilter(filter, cursor, limit);
+    }
+
+    @Override
+    public Film getFilmById(Integer id) {
+        return cache.get(id, delegate::getFilmById);
+    }
+
+    /*
+     * Промахи читаются из delegate одним запросом, но в кэш не попадают: getAll() записал бы прочитанное поверх
+     * инвалидации, прошедшей между чтением и записью, и в кэше осталась бы старая версия. В кэш пишет только get(),
+     * атомарный относительно invalidate().
+     */
+    @Override
+    public List<Film> getFilmsByIds(int[] ids) {
+        List<Integer> keys = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            keys.add(id);
+        }
+        Map<Integer, Film> cached = cache.getAllPresent(keys);
+        Map<Integer, Film> loaded = cached.size() == keys.size() ? Map.of() : loadFilms(ids, cached);
+        List<Film> films = new ArrayList<>(ids.length);
+        for (Integer key : keys) {
+            Film film = cached.getOrDefault(key, loaded.get(key));
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public void deleteFilmById(Integer id) {
+        delegate.deleteFilmById(id);
+        cache.invalidate(id);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        Film updated = delegate.updateFilm(film);
+        cache.invalidate(film.getId());
+        return updated;
+    }
+
+    @Override
+    public Film updateFilm(Film film, long expectedVersion) {
+        Film updated = delegate.updateFilm(film, expectedVersion);
+        cache.invalidate(film.getId());
+        return updated;
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        return delegate.createFilm(film);
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        return delegate.createFilms(films);
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        boolean added = delegate.addLike(filmId, userId);
+        if (added) {
+            cache.invalidate(filmId);
+        }
+        return added;
+    }
+
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        List<Like> added = delegate.addLikes(likes);
+        cache.invalidateAll(added.stream().map(Like::getFilmId).distinct().toList());
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(Integer filmId, Integer userId) {
+        boolean deleted = delegate.deleteLike(filmId, userId);
+        if (deleted) {
+            cache.invalidate(filmId);
+        }
+        return deleted;
+    }
+
+    @Override
+    public int[] deleteUserLikes(Integer userId) {
+        int[] filmIds = delegate.deleteUserLikes(userId);
+        cache.invalidateAll(Arrays.stream(filmIds).boxed().toList());
+        return filmIds;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return delegate.getPopularFilms(count);
+    }
+
+    @Override
+    public int[] getLikedFilmIds(Integer userId) {
+        return delegate.getLikedFilmIds(userId);
+    }
+
+    @Override
+    public List<FilmSummary> getPopularFilmSummaries(int count) {
+        return delegate.getPopularFilmSummaries(count);
+    }
+
+    @Override
+    public int[] getFilmLikes(Integer filmId, Integer cursor, int limit) {
+        return delegate.getFilmLikes(filmId, cursor, limit);
+    }
+
+    @Override
+    public int getFilmsCount() {
+        return delegate.getFilmsCount();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return delegate.getLikesCount();
+    }
+
+    @Override
+    public String getVersionGeneration() {
+        return delegate.getVersionGeneration();
+    }
+
+    private Map<Integer, Film> loadFilms(int[] ids, Map<Integer, Film> cached) {
+        int[] missingIds = Arrays.stream(ids).filter(id -> !cached.containsKey(id)).distinct().toArray();
+        Map<Integer, Film> loaded = new HashMap<>();
+        for (Film film : delegate.getFilmsByIds(missingIds)) {
+            loaded.put(film.getId(), film);
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CachingUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final Cache<Integer, User> cache;
+    private final Cache<Integer, Film> filmCache;
+
+    public CachingUserStorage(UserStorage delegate, long maximumSize, Cache<Integer, Film> filmCache) {
+        this.delegate = delegate;
+        this.filmCache = filmCache;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public Cache<Integer, User> getCache() {
+        return cache;
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersPage(Integer cursor, int limit) {
+        return delegate.getUsersPage(cursor, limit);
+    }
+
+    @Override
+    public User getUserById(Integer id) {
+        return cache.get(id, delegate::getUserById);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return delegate.getUserByEmail(email);
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        return delegate.getUserByLogin(login);
+    }
+
+    /* Промахи, как и в CachingFilmStorage, в кэш не попадают: иначе они перезаписали бы инвалидацию. */
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        List<Integer> keys = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            keys.add(id);
+        }
+        Map<Integer, User> cached = cache.getAllPresent(keys);
+        Map<Integer, User> loaded = cached.size() == keys.size() ? Map.of() : loadUsers(ids, cached);
+        List<User> users = new ArrayList<>(ids.length);
+        for (Integer key : keys) {
+            User user = cached.getOrDefault(key, loaded.get(key));
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> getFriends(Integer userId) {
+        return delegate.getFriends(userId);
+    }
+
+    @Override
+    public List<User> getCommonFriends(List<Integer> userIds) {
+        return delegate.getCommonFriends(userIds);
+    }
+
+    @Override
+    public User createUser(User user) {
+        return delegate.createUser(user);
+    }
+
+    @Override
+    public List<User> createUsers(List<User> users) {
+        return delegate.createUsers(users);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        User updated = delegate.updateUser(user);
+        cache.invalidate(user.getId());
+        return updated;
+    }
+
+    @Override
+    public User updateUser(User user, long expectedVersion) {
+        User updated = delegate.updateUser(user, expectedVersion);
+        cache.invalidate(user.getId());
+        return updated;
+    }
+
+    /*
+     * Удаление пользователя меняет версии его друзей и фильмов, которые он лайкал, а в базе ещё и like_count.
+     * Удаления редки, поэтому оба кеша сбрасываются целиком.
+     */
+    @Override
+    public void deleteUserById(Integer id) {
+        delegate.deleteUserById(id);
+        cache.invalidateAll();
+        filmCache.invalidateAll();
+    }
+
+    @Override
+    public boolean addFriend(Integer userId, Integer friendId) {
+        boolean added = delegate.addFriend(userId, friendId);
+        if (added) {
+            cache.invalidateAll(List.of(userId, friendId));
+        }
+        return added;
+    }
+
+    @Override
+    public List<Friendship> addFriends(List<Friendship> friendships) {
+        List<Friendship> added = delegate.addFriends(friendships);
+        List<Integer> ids = new ArrayList<>(added.size() * 2);
+        for (Friendship friendship : added) {
+            ids.add(friendship.getUserId());
+            ids.add(friendship.getFriendId());
+        }
+        cache.invalidateAll(ids);
+        return added;
+    }
+
+    @Override
+    public boolean deleteFriend(Integer userId, Integer friendId) {
+        boolean deleted = delegate.deleteFriend(userId, friendId);
+        if (deleted) {
+            cache.invalidateAll(List.of(userId, friendId));
+        }
+        return deleted;
+    }
+
+    @Override
+    public int getUsersCount() {
+        return delegate.getUsersCount();
+    }
+
+    @Override
+    public long getFriendshipsCount() {
+        return delegate.getFriendshipsCount();
+    }
+
+    @Override
+    public String getVersionGeneration() {
+        return delegate.getVersionGeneration();
+    }
+
+    private Map<Integer, User> loadUsers(int[] ids, Map<Integer, User> cached) {
+        int[] missingIds = Arrays.stream(ids).filter(id -> !cached.containsKey(id)).distinct().toArray();
+        Map<Integer, User> loaded = new HashMap<>();
+        for (User user : delegate.getUsersByIds(missingIds)) {
+            loaded.put(user.getId(), user);
+        }
+        return loaded;
+    }
+}
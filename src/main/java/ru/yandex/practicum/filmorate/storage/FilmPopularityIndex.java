@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/*
+ * Изменения одного фильма должен упорядочивать вызывающий (InMemoryFilmStorage держит блокировку его полосы),
+ * чтение идёт без блокировок. Пока запись фильма переносится, он ненадолго присутствует дважды, top() пропускает
+ * дубликат.
+ */
+public class FilmPopularityIndex {
+
+    private static final Comparator<Entry> BY_LIKES_DESC_THEN_ID = Comparator
+            .comparingInt(Entry::likes).reversed()
+            .thenComparingInt(Entry::filmId);
+
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_LIKES_DESC_THEN_ID);
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    public void update(int filmId, int likes) {
+        Entry updated = new Entry(likes, filmId);
+        ranking.add(updated);
+        Entry previous = entries.put(filmId, updated);
+        if (previous != null && !previous.equals(updated)) {
+            ranking.remove(previous);
+        }
+    }
+
+    public void remove(int filmId) {
+        Entry previous = entries.remove(filmId);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+    }
+
+    public List<Integer> top(int count) {
+        List<Integer> filmIds = new ArrayList<>(Math.min(Math.max(count, 0), entries.size()));
+        Set<Integer> seen = new HashSet<>();
+        Iterator<Entry> iterator = ranking.iterator();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            int filmId = iterator.next().filmId();
+            if (seen.add(filmId)) {
+                filmIds.add(filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    private record Entry(int likes, int filmId) {
+    }
+}
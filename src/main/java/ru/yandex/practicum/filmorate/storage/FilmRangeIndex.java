@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntConsumer;
+
+/*
+ * Сортированный вторичный индекс ключ -> id фильмов для запросов по диапазону. Изменения одного фильма должен
+ * упорядочивать вызывающий (InMemoryFilmStorage держит блокировку его полосы). Чтение идёт без блокировок и может
+ * пропустить фильм, у которого как раз меняется ключ, поэтому вызывающие перепроверяют сам фильм. Опустевшие наборы
+ * id остаются в отображении: их удаление гонялось бы с параллельным добавлением под тем же ключом, а различных
+ * ключей немного.
+ */
+public class FilmRangeIndex {
+
+    private final NavigableMap<Integer, IntHashSet> idsByKey = new ConcurrentSkipListMap<>();
+
+    public void add(Integer key, int filmId) {
+        if (key != null) {
+            idsByKey.computeIfAbsent(key, k -> new IntHashSet()).add(filmId);
+        }
+    }
+
+    public void remove(Integer key, int filmId) {
+        if (key != null) {
+            IntHashSet ids = idsByKey.get(key);
+            if (ids != null) {
+                ids.remove(filmId);
+            }
+        }
+    }
+
+    /* Число id в [from, to]; подсчёт останавливается, как только превысит limit. */
+    public long estimate(int from, int to, long limit) {
+        long count = 0;
+        for (IntHashSet ids : range(from, to).values()) {
+            count += ids.size();
+            if (count > limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    public void forEach(int from, int to, IntConsumer action) {
+        for (IntHashSet ids : range(from, to).values()) {
+            ids.forEachInt(action);
+        }
+    }
+
+    private NavigableMap<Integer, IntHashSet> range(int from, int to) {
+        return from > to ? Collections.emptyNavigableMap() : idsByKey.subMap(from, true, to, true);
+    }
+}
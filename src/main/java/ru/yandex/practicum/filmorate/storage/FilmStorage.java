@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
 
 import java.util.List;
 
@@ -8,12 +11,56 @@ public interface FilmStorage {
 
     List<Film> getAllFilms();
 
+    List<Film> getFilmsPage(Integer cursor, int limit);
+
+    List<FilmSummary> getAllFilmSummaries();
+
+    List<FilmSummary> getFilmSummariesPage(Integer cursor, int limit);
+
+    List<Film> getFilmsByFilter(FilmFilter filter, Integer cursor, int limit);
+
+    List<FilmSummary> getFilmSummariesByFilter(FilmFilter filter, Integer cursor, int limit);
+
     Film getFilmById(Integer id);
 
+    List<Film> getFilmsByIds(int[] ids);
+
     void deleteFilmById(Integer id);
 
     Film updateFilm(Film film);
 
+    /* Обновляет фильм, только если его текущая версия равна expectedVersion. */
+    Film updateFilm(Film film, long expectedVersion);
+
     Film createFilm(Film film);
 
+    List<Film> createFilms(List<Film> films);
+
+    /* Возвращает true, если лайка ещё не было и он добавлен. */
+    boolean addLike(Integer filmId, Integer userId);
+
+    /* Возвращает лайки, которые действительно добавлены; повторные и уже поставленные пропускаются. */
+    List<Like> addLikes(List<Like> likes);
+
+    /* Возвращает true, если лайк был и удалён. */
+    boolean deleteLike(Integer filmId, Integer userId);
+
+    /* Удаляет все лайки пользователя и возвращает id фильмов, у которых они были. */
+    int[] deleteUserLikes(Integer userId);
+
+    List<Film> getPopularFilms(int count);
+
+    List<FilmSummary> getPopularFilmSummaries(int count);
+
+    int[] getFilmLikes(Integer filmId, Integer cursor, int limit);
+
+    int[] getLikedFilmIds(Integer userId);
+
+    int getFilmsCount();
+
+    long getLikesCount();
+
+    /* Поколение версий: версии фильмов сравнимы только в пределах одного поколения. */
+    String getVersionGeneration();
+
 }
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdGenerator {
+
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    public int next() {
+        return lastId.incrementAndGet();
+    }
+
+    public void seed(int usedId) {
+        lastId.accumulateAndGet(usedId, Math::max);
+    }
+
+    public int current() {
+        return lastId.get();
+    }
+}
@@ -1,53 +1,547 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotTable;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
+/*
+ * Опубликованные в films объекты не изменяются: любая запись под блокировкой полосы строит новую версию фильма
+ * с замороженным набором лайков и заменяет ею прежнюю. Читатели берут объект без блокировок и могут
+ * сериализовать его параллельно с записью.
+ */
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Integer, Film> films = new HashMap<>();
+    private static final int LOCK_STRIPES = 256;
+    private static final long ANY_VERSION = -1;
+
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    private final Map<Integer, IntHashSet> likedFilmsByUser = new ConcurrentHashMap<>();
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+    private final FilmRangeIndex releaseDateIndex = new FilmRangeIndex();
+    private final FilmRangeIndex durationIndex = new FilmRangeIndex();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final IdGenerator idGenerator = new IdGenerator();
+    private final AtomicInteger filmCount = new AtomicInteger();
+    private final AtomicLong likeCount = new AtomicLong();
+    private final StorageJournal journal;
+    private volatile SnapshotTable<Film> snapshot;
+    /*
+     * Версии в памяти начинаются с 1 при каждом запуске и при загрузке из снимка. Без журнала поколение — метка
+     * запуска, с журналом его назначает PersistenceManager по номеру сегмента, открытого после восстановления.
+     */
+    private volatile String versionGeneration = Long.toString(System.currentTimeMillis(), 36);
+
+    public InMemoryFilmStorage() {
+        this(StorageJournal.NOOP);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public Film createFilm(Film film) {
-        film.setId(getNextId());
-        films.put(film.getId(), film);
+        journal.awaitDurable(insert(film));
         return film;
     }
 
+    @Override
+    public List<Film> createFilms(List<Film> newFilms) {
+        long sequence = StorageJournal.NOT_LOGGED;
+        for (Film film : newFilms) {
+            sequence = Math.max(sequence, insert(film));
+        }
+        journal.awaitDurable(sequence);
+        return newFilms;
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        films.put(film.getId(), film);
+        return updateFilm(film, ANY_VERSION);
+    }
+
+    @Override
+    public Film updateFilm(Film film, long expectedVersion) {
+        journal.awaitDurable(put(film, expectedVersion, false));
         return film;
     }
 
+    /* Применяет запись журнала при восстановлении: в отличие от updateFilm, отсутствующий фильм создаётся. */
+    public void restoreFilm(Film film) {
+        journal.awaitDurable(put(film, ANY_VERSION, true));
+    }
+
     @Override
     public void deleteFilmById(Integer id) {
-        films.remove(id);
+        long sequence = StorageJournal.NOT_LOGGED;
+        locks.lock(id);
+        try {
+            Film removed = load(id);
+            if (removed != null) {
+                films.remove(id);
+                filmCount.decrementAndGet();
+                removed.getLikes().forEachInt(userId -> unindexLike(id, userId));
+                releaseDateIndex.remove(releaseDateKey(removed), id);
+                durationIndex.remove(removed.getDuration(), id);
+                popularityIndex.remove(id);
+                sequence = journal.append(new JournalRecord.FilmDeleted(id));
+            }
+        } finally {
+            locks.unlock(id);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /* Удалённый фильм не воскресает: проверка выполняется под той же блокировкой, что и удаление. */
+    private long put(Film film, long expectedVersion, boolean upsert) {
+        locks.lock(film.getId());
+        try {
+            Film previous = load(film.getId());
+            if (previous == null && !upsert) {
+                throw new NotFoundException("Фильм с id = " + film.getId() + " не найден.");
+            }
+            if (expectedVersion != ANY_VERSION && (previous == null || previous.getVersion() != expectedVersion)) {
+                throw new PreconditionFailedException("Фильм с id = " + film.getId() + " изменён другим запросом.");
+            }
+            if (previous == null) {
+                return store(film);
+            } else {
+                Film next = film.toBuilder()
+                        .likes(previous.getLikes())
+                        .version(previous.getVersion() + 1)
+                        .build();
+                films.put(next.getId(), next);
+                reindexRanges(previous, next);
+                mirror(film, next);
+                return journal.append(JournalRecord.filmPut(next));
+            }
+        } finally {
+            locks.unlock(film.getId());
+        }
     }
 
     @Override
     public Film getFilmById(Integer id) {
-        return films.get(id);
+        Film film = films.get(id);
+        if (film != null || snapshot == null) {
+            return film;
+        }
+        locks.lock(id);
+        try {
+            return load(id);
+        } finally {
+            locks.unlock(id);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(int[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Film film = getFilmById(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
     }
 
     @Override
     public List<Film> getAllFilms() {
+        warmUp();
         return new ArrayList<>(films.values());
     }
 
-    private int getNextId() {
-        int currentMaxId = films.keySet()
+    @Override
+    public List<Film> getFilmsPage(Integer cursor, int limit) {
+        warmUp();
+        return (cursor == null ? films : films.tailMap(cursor, false))
+                .values()
+                .stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<FilmSummary> getAllFilmSummaries() {
+        warmUp();
+        return films.values()
+                .stream()
+                .map(FilmSummary::of)
+                .toList();
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesPage(Integer cursor, int limit) {
+        warmUp();
+        return (cursor == null ? films : films.tailMap(cursor, false))
+                .values()
                 .stream()
-                .mapToInt(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+                .limit(limit)
+                .map(FilmSummary::of)
+                .toList();
     }
 
+    @Override
+    public List<Film> getFilmsByFilter(FilmFilter filter, Integer cursor, int limit) {
+        warmUp();
+        if (filter.isEmpty()) {
+            return getFilmsPage(cursor, limit);
+        }
+        int[] ids = candidateIds(filter);
+        Arrays.sort(ids);
+        int from = 0;
+        if (cursor != null) {
+            int index = Arrays.binarySearch(ids, cursor);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        List<Film> result = new ArrayList<>(Math.min(limit, ids.length - from));
+        for (int i = from; i < ids.length && result.size() < limit; i++) {
+            if (i > from && ids[i] == ids[i - 1]) {
+                continue;
+            }
+            Film film = films.get(ids[i]);
+            if (film != null && filter.matches(film)) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesByFilter(FilmFilter filter, Integer cursor, int limit) {
+        return getFilmsByFilter(filter, cursor, limit)
+                .stream()
+                .map(FilmSummary::of)
+                .toList();
+    }
+
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        List<Like> added = new ArrayList<>(1);
+        journal.awaitDurable(like(filmId, List.of(userId), added));
+        return !added.isEmpty();
+    }
+
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        Map<Integer, List<Integer>> userIdsByFilm = new LinkedHashMap<>();
+        for (Like like : likes) {
+            userIdsByFilm.computeIfAbsent(like.getFilmId(), id -> new ArrayList<>()).add(like.getUserId());
+        }
+        List<Like> added = new ArrayList<>(likes.size());
+        long sequence = StorageJournal.NOT_LOGGED;
+        for (Map.Entry<Integer, List<Integer>> entry : userIdsByFilm.entrySet()) {
+            sequence = Math.max(sequence, like(entry.getKey(), entry.getValue(), added));
+        }
+        journal.awaitDurable(sequence);
+        return added;
+    }
+
+    @Override
+    public boolean deleteLike(Integer filmId, Integer userId) {
+        long sequence = StorageJournal.NOT_LOGGED;
+        boolean deleted = false;
+        locks.lock(filmId);
+        try {
+            Film film = load(filmId);
+            if (film != null && film.getLikes().contains(userId)) {
+                IntHashSet likes = new IntHashSet(film.getLikes());
+                likes.remove(userId);
+                replaceLikes(film, likes);
+                unindexLike(filmId, userId);
+                sequence = journal.append(new JournalRecord.LikeDeleted(filmId, userId));
+                deleted = true;
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.awaitDurable(sequence);
+        return deleted;
+    }
+
+    /* Лайки ещё не загруженных из снимка фильмов не попадают в likedFilmsByUser, поэтому снимок загружается целиком. */
+    @Override
+    public int[] deleteUserLikes(Integer userId) {
+        warmUp();
+        IntHashSet likedFilms = likedFilmsByUser.get(userId);
+        if (likedFilms == null) {
+            return new int[0];
+        }
+        IntStream.Builder filmIds = IntStream.builder();
+        for (int filmId : likedFilms.toIntArray()) {
+            if (deleteLike(filmId, userId)) {
+                filmIds.add(filmId);
+            }
+        }
+        return filmIds.build().toArray();
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        warmUp();
+        return popularityIndex.top(count)
+                .stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<FilmSummary> getPopularFilmSummaries(int count) {
+        return getPopularFilms(count)
+                .stream()
+                .map(FilmSummary::of)
+                .toList();
+    }
+
+    @Override
+    public int[] getFilmLikes(Integer filmId, Integer cursor, int limit) {
+        Film film = getFilmById(filmId);
+        return film == null ? new int[0] : film.getLikes().sortedPage(cursor, limit);
+    }
+
+    @Override
+    public int[] getLikedFilmIds(Integer userId) {
+        warmUp();
+        IntHashSet filmIds = likedFilmsByUser.get(userId);
+        return filmIds == null ? new int[0] : filmIds.toIntArray();
+    }
+
+    @Override
+    public int getFilmsCount() {
+        return filmCount.get();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return likeCount.get();
+    }
+
+    @Override
+    public String getVersionGeneration() {
+        return versionGeneration;
+    }
+
+    public void restoreVersionGeneration(String generation) {
+        versionGeneration = generation;
+    }
+
+    public int getLastId() {
+        return idGenerator.current();
+    }
+
+    public void restoreLastId(int lastId) {
+        idGenerator.seed(lastId);
+    }
+
+    public void attachSnapshot(SnapshotTable<Film> table) {
+        snapshot = table;
+    }
+
+    public void warmUp() {
+        SnapshotTable<Film> table = snapshot;
+        if (table == null) {
+            return;
+        }
+        for (int index = 0; index < table.size(); index++) {
+            int id = table.id(index);
+            locks.lock(id);
+            try {
+                load(id);
+            } finally {
+                locks.unlock(id);
+            }
+        }
+        snapshot = null;
+    }
+
+    private long insert(Film film) {
+        film.setId(idGenerator.next());
+        locks.lock(film.getId());
+        try {
+            return store(film);
+        } finally {
+            locks.unlock(film.getId());
+        }
+    }
+
+    /*
+     * Публикует копию нового фильма; вызывается под блокировкой его полосы. Новый фильм всегда без лайков:
+     * лайки ставятся только через addLike, где проверяется, что пользователь существует.
+     */
+    private long store(Film film) {
+        Film stored = film.toBuilder()
+                .likes(new IntHashSet().freeze())
+                .version(1)
+                .build();
+        films.put(stored.getId(), stored);
+        filmCount.incrementAndGet();
+        mirror(film, stored);
+        popularityIndex.update(stored.getId(), 0);
+        indexRanges(stored);
+        return journal.append(JournalRecord.filmPut(stored));
+    }
+
+    /* Добавленные лайки дописываются в added: решение принимается под блокировкой, повторно их не проверить. */
+    private long like(int filmId, List<Integer> userIds, List<Like> added) {
+        long sequence = StorageJournal.NOT_LOGGED;
+        locks.lock(filmId);
+        try {
+            Film film = load(filmId);
+            if (film == null) {
+                return sequence;
+            }
+            IntHashSet likes = null;
+            for (int userId : userIds) {
+                if (!(likes == null ? film.getLikes() : likes).contains(userId)) {
+                    if (likes == null) {
+                        likes = new IntHashSet(film.getLikes());
+                    }
+                    likes.add(userId);
+                    indexLike(filmId, userId);
+                    sequence = journal.append(new JournalRecord.LikeAdded(filmId, userId));
+                    added.add(Like.builder()
+                            .filmId(filmId)
+                            .userId(userId)
+                            .build());
+                }
+            }
+            if (likes != null) {
+                replaceLikes(film, likes);
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        return sequence;
+    }
+
+    private void replaceLikes(Film film, IntHashSet likes) {
+        Film next = film.toBuilder()
+                .likes(likes.freeze())
+                .version(film.getVersion() + 1)
+                .build();
+        films.put(next.getId(), next);
+        popularityIndex.update(next.getId(), likes.size());
+    }
+
+    /* Как и id, версию и актуальный набор лайков вызывающий получает через переданный объект. */
+    private static void mirror(Film film, Film stored) {
+        film.setVersion(stored.getVersion());
+        film.setLikes(stored.getLikes());
+    }
+
+    private Film load(int id) {
+        Film film = films.get(id);
+        SnapshotTable<Film> table = snapshot;
+        if (film != null || table == null) {
+            return film;
+        }
+        int index = table.indexOf(id);
+        if (index < 0 || !table.claim(index)) {
+            return null;
+        }
+        film = table.row(index);
+        film.getLikes().freeze();
+        film.setVersion(1);
+        films.put(id, film);
+        filmCount.incrementAndGet();
+        film.getLikes().forEachInt(userId -> indexLike(id, userId));
+        popularityIndex.update(id, film.getLikes().size());
+        indexRanges(film);
+        return film;
+    }
+
+    /*
+     * Кандидаты берутся из более узкого индекса: при двух диапазонах оценка по датам останавливается, как только
+     * превысит число фильмов в диапазоне длительностей. Оставшееся условие проверяет filter.matches().
+     */
+    private int[] candidateIds(FilmFilter filter) {
+        int dateFrom = filter.releasedFrom() == null ? Integer.MIN_VALUE : epochDay(filter.releasedFrom());
+        int dateTo = filter.releasedTo() == null ? Integer.MAX_VALUE : epochDay(filter.releasedTo());
+        int durationFrom = filter.minDuration() == null ? Integer.MIN_VALUE : filter.minDuration();
+        int durationTo = filter.maxDuration() == null ? Integer.MAX_VALUE : filter.maxDuration();
+        boolean byReleaseDate = filter.hasReleaseDateRange();
+        if (byReleaseDate && filter.hasDurationRange()) {
+            long durationCount = durationIndex.estimate(durationFrom, durationTo, Long.MAX_VALUE);
+            byReleaseDate = releaseDateIndex.estimate(dateFrom, dateTo, durationCount) <= durationCount;
+        }
+        IntStream.Builder ids = IntStream.builder();
+        if (byReleaseDate) {
+            releaseDateIndex.forEach(dateFrom, dateTo, ids::add);
+        } else {
+            durationIndex.forEach(durationFrom, durationTo, ids::add);
+        }
+        return ids.build().toArray();
+    }
+
+    private void indexRanges(Film film) {
+        releaseDateIndex.add(releaseDateKey(film), film.getId());
+        durationIndex.add(film.getDuration(), film.getId());
+    }
+
+    private void reindexRanges(Film previous, Film next) {
+        if (!Objects.equals(previous.getReleaseDate(), next.getReleaseDate())) {
+            releaseDateIndex.remove(releaseDateKey(previous), previous.getId());
+            releaseDateIndex.add(releaseDateKey(next), next.getId());
+        }
+        if (!Objects.equals(previous.getDuration(), next.getDuration())) {
+            durationIndex.remove(previous.getDuration(), previous.getId());
+            durationIndex.add(next.getDuration(), next.getId());
+        }
+    }
+
+    private static Integer releaseDateKey(Film film) {
+        return film.getReleaseDate() == null ? null : epochDay(film.getReleaseDate());
+    }
+
+    private static int epochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    private void indexLike(int filmId, int userId) {
+        likedFilmsByUser.compute(userId, (id, filmIds) -> {
+            IntHashSet likedFilms = filmIds == null ? new IntHashSet() : filmIds;
+            if (likedFilms.add(filmId)) {
+                likeCount.incrementAndGet();
+            }
+            return likedFilms;
+        });
+    }
+
+    private void unindexLike(int filmId, int userId) {
+        likedFilmsByUser.computeIfPresent(userId, (id, filmIds) -> {
+            if (filmIds.remove(filmId)) {
+                likeCount.decrementAndGet();
+            }
+            return filmIds.isEmpty() ? null : filmIds;
+        });
+    }
 }
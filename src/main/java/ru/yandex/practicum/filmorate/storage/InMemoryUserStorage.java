@@ -1,53 +1,536 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.persistence.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.persistence.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotTable;
+import ru.yandex.practicum.filmorate.storage.persistence.StorageJournal;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/*
+ * Как и в InMemoryFilmStorage, опубликованные пользователи не изменяются: добавление и удаление друзей
+ * заменяет обоих пользователей новыми версиями с замороженными наборами друзей.
+ * Email (без учёта регистра) и login уникальны: ключ занимается putIfAbsent в хеш-индексе до записи
+ * пользователя в основную карту, поэтому из двух одновременных созданий с одним email проходит одно.
+ */
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Integer, User> users = new HashMap<>();
+    private static final int LOCK_STRIPES = 256;
+    private static final long ANY_VERSION = -1;
+
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final IdGenerator idGenerator = new IdGenerator();
+    private final AtomicInteger userCount = new AtomicInteger();
+    /* Дружба симметрична, поэтому каждая пара учитывается здесь дважды. */
+    private final AtomicLong friendLinkCount = new AtomicLong();
+    private final Map<String, Integer> idsByEmail = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsByLogin = new ConcurrentHashMap<>();
+    private final StorageJournal journal;
+    private volatile SnapshotTable<User> snapshot;
+    /* Назначается так же, как в InMemoryFilmStorage. */
+    private volatile String versionGeneration = Long.toString(System.currentTimeMillis(), 36);
+
+    public InMemoryUserStorage() {
+        this(StorageJournal.NOOP);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(StorageJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public List<User> getAllUsers() {
+        warmUp();
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getUsersPage(Integer cursor, int limit) {
+        warmUp();
+        return (cursor == null ? users : users.tailMap(cursor, false))
+                .values()
+                .stream()
+                .limit(limit)
+                .toList();
+    }
+
     @Override
     public User createUser(User user) {
-        user.setId(getNextId());
-        users.put(user.getId(), user);
+        user.setId(idGenerator.next());
+        journal.awaitDurable(put(user, ANY_VERSION, PutMode.CREATE));
         return user;
     }
 
+    /* Пакет сохраняется целиком или не сохраняется вовсе: ключи всех пользователей занимаются заранее. */
+    @Override
+    public List<User> createUsers(List<User> newUsers) {
+        // занятые email и login отсекают пакет до выдачи идентификаторов, чтобы отклонённый пакет их не расходовал
+        checkKeysFree(newUsers);
+        for (User user : newUsers) {
+            user.setId(idGenerator.next());
+        }
+        for (int i = 0; i < newUsers.size(); i++) {
+            try {
+                claimKeys(newUsers.get(i));
+            } catch (ConflictException e) {
+                for (int j = 0; j < i; j++) {
+                    releaseKeys(newUsers.get(j));
+                }
+                for (User user : newUsers) {
+                    user.setId(null);
+                }
+                throw e;
+            }
+        }
+        long sequence = StorageJournal.NOT_LOGGED;
+        for (User user : newUsers) {
+            sequence = Math.max(sequence, put(user, ANY_VERSION, PutMode.CREATE));
+        }
+        journal.awaitDurable(sequence);
+        return newUsers;
+    }
+
     @Override
     public User updateUser(User user) {
-        users.put(user.getId(), user);
+        journal.awaitDurable(put(user, ANY_VERSION, PutMode.UPDATE));
+        return user;
+    }
+
+    @Override
+    public User updateUser(User user, long expectedVersion) {
+        journal.awaitDurable(put(user, expectedVersion, PutMode.UPDATE));
         return user;
     }
 
+    /*
+     * Применяет запись журнала при восстановлении: в отличие от updateUser, отсутствующий пользователь создаётся.
+     * Снимок нечёткий и может уже содержать более поздние изменения, поэтому email и login переходят к этому
+     * пользователю без проверки уникальности: конечных владельцев расставят следующие записи журнала.
+     */
+    public void restoreUser(User user) {
+        journal.awaitDurable(put(user, ANY_VERSION, PutMode.RESTORE));
+    }
+
+    /*
+     * Сначала пользователь убирается из наборов друзей: каждая пара снимается под блокировками обеих полос, как
+     * в deleteFriend. Если за это время появился новый друг, проход повторяется: удаляется только пользователь
+     * без друзей.
+     */
     @Override
     public void deleteUserById(Integer id) {
-        users.remove(id);
+        long sequence = StorageJournal.NOT_LOGGED;
+        List<Friendship> removedFriendships = new ArrayList<>();
+        boolean deleted = false;
+        while (!deleted) {
+            User user = getUserById(id);
+            if (user != null) {
+                for (int friendId : user.getFriends().toIntArray()) {
+                    sequence = Math.max(sequence, unfriend(Friendship.builder()
+                            .userId(id)
+                            .friendId(friendId)
+                            .build(), removedFriendships));
+                }
+            }
+            locks.lock(id);
+            try {
+                User removed = load(id);
+                if (removed == null) {
+                    deleted = true;
+                } else if (removed.getFriends().isEmpty()) {
+                    users.remove(id);
+                    releaseKeys(removed);
+                    userCount.decrementAndGet();
+                    sequence = Math.max(sequence, journal.append(new JournalRecord.UserDeleted(id)));
+                    deleted = true;
+                }
+            } finally {
+                locks.unlock(id);
+            }
+        }
+        journal.awaitDurable(sequence);
     }
 
     @Override
     public User getUserById(Integer id) {
-        return users.get(id);
+        User user = users.get(id);
+        if (user != null || snapshot == null) {
+            return user;
+        }
+        locks.lock(id);
+        try {
+            return load(id);
+        } finally {
+            locks.unlock(id);
+        }
     }
 
-    private int getNextId() {
-        int currentMaxId = users.keySet()
-                .stream()
-                .mapToInt(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    @Override
+    public User getUserByEmail(String email) {
+        Integer id = idsByEmail.get(emailKey(email));
+        return id == null ? null : getUserById(id);
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        Integer id = idsByLogin.get(login);
+        return id == null ? null : getUserById(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            User user = getUserById(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getFriends(Integer userId) {
+        User user = getUserById(userId);
+        return user == null ? List.of() : getUsersByIds(user.getFriends().toSortedIntArray());
+    }
+
+    @Override
+    public List<User> getCommonFriends(List<Integer> userIds) {
+        List<IntHashSet> friendSets = new ArrayList<>(userIds.size());
+        for (Integer userId : userIds) {
+            User user = getUserById(userId);
+            if (user == null) {
+                return List.of();
+            }
+            friendSets.add(user.getFriends());
+        }
+        friendSets.sort(Comparator.comparingInt(IntHashSet::size));
+        int[] commonFriendIds = friendSets.getFirst().toSortedIntArray();
+        for (int i = 1; i < friendSets.size() && commonFriendIds.length > 0; i++) {
+            commonFriendIds = friendSets.get(i).filterContained(commonFriendIds);
+        }
+        return getUsersByIds(commonFriendIds);
+    }
+
+    @Override
+    public boolean addFriend(Integer userId, Integer friendId) {
+        List<Friendship> added = new ArrayList<>(1);
+        journal.awaitDurable(befriend(Friendship.builder()
+                .userId(userId)
+                .friendId(friendId)
+                .build(), added));
+        return !added.isEmpty();
+    }
+
+    @Override
+    public List<Friendship> addFriends(List<Friendship> friendships) {
+        List<Friendship> added = new ArrayList<>(friendships.size());
+        long sequence = StorageJournal.NOT_LOGGED;
+        for (Friendship friendship : friendships) {
+            sequence = Math.max(sequence, befriend(friendship, added));
+        }
+        journal.awaitDurable(sequence);
+        return added;
+    }
+
+    @Override
+    public boolean deleteFriend(Integer userId, Integer friendId) {
+        List<Friendship> removed = new ArrayList<>(1);
+        journal.awaitDurable(unfriend(Friendship.builder()
+                .userId(userId)
+                .friendId(friendId)
+                .build(), removed));
+        return !removed.isEmpty();
+    }
+
+    @Override
+    public int getUsersCount() {
+        return userCount.get();
+    }
+
+    @Override
+    public long getFriendshipsCount() {
+        return friendLinkCount.get() / 2;
+    }
+
+    @Override
+    public String getVersionGeneration() {
+        return versionGeneration;
+    }
+
+    public void restoreVersionGeneration(String generation) {
+        versionGeneration = generation;
+    }
+
+    public int getLastId() {
+        return idGenerator.current();
+    }
+
+    public void restoreLastId(int lastId) {
+        idGenerator.seed(lastId);
+    }
+
+    /* Индексы email и login заполняются по всему снимку сразу, а сами пользователи загружаются по требованию. */
+    public void attachSnapshot(SnapshotTable<User> table) {
+        for (int index = 0; index < table.size(); index++) {
+            int id = table.id(index);
+            String email = MappedSnapshot.userEmail(table, index);
+            if (email != null) {
+                idsByEmail.put(emailKey(email), id);
+            }
+            String login = MappedSnapshot.userLogin(table, index);
+            if (login != null) {
+                idsByLogin.put(login, id);
+            }
+        }
+        snapshot = table;
+    }
+
+    public void warmUp() {
+        SnapshotTable<User> table = snapshot;
+        if (table == null) {
+            return;
+        }
+        for (int index = 0; index < table.size(); index++) {
+            int id = table.id(index);
+            locks.lock(id);
+            try {
+                load(id);
+            } finally {
+                locks.unlock(id);
+            }
+        }
+        snapshot = null;
+    }
+
+    /*
+     * Удалённый пользователь не воскресает: создать отсутствующего можно только явно, через create. Новый
+     * пользователь всегда без друзей, как и фильм без лайков в InMemoryFilmStorage.
+     */
+    private long put(User user, long expectedVersion, PutMode mode) {
+        locks.lock(user.getId());
+        try {
+            User previous = load(user.getId());
+            if (previous == null && mode == PutMode.UPDATE) {
+                throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден.");
+            }
+            if (expectedVersion != ANY_VERSION && (previous == null || previous.getVersion() != expectedVersion)) {
+                throw new PreconditionFailedException("Пользователь с id = " + user.getId()
+                        + " изменён другим запросом.");
+            }
+            if (mode == PutMode.RESTORE) {
+                overwriteKeys(user);
+            } else {
+                claimKeys(user);
+            }
+            if (previous != null) {
+                releaseChangedKeys(previous, user);
+            }
+            User stored = user.toBuilder()
+                    .friends(previous == null ? new IntHashSet().freeze() : previous.getFriends())
+                    .version(previous == null ? 1 : previous.getVersion() + 1)
+                    .build();
+            users.put(stored.getId(), stored);
+            if (previous == null) {
+                userCount.incrementAndGet();
+            }
+            /* Как и id, версию и актуальный набор друзей вызывающий получает через переданный объект. */
+            user.setVersion(stored.getVersion());
+            user.setFriends(stored.getFriends());
+            return journal.append(JournalRecord.userPut(stored));
+        } finally {
+            locks.unlock(user.getId());
+        }
+    }
+
+    private void claimKeys(User user) {
+        String email = emailKey(user.getEmail());
+        Integer emailOwner = email == null ? null : idsByEmail.putIfAbsent(email, user.getId());
+        if (emailOwner != null && !emailOwner.equals(user.getId())) {
+            throw new ConflictException("Пользователь с email = " + user.getEmail() + " уже существует.");
+        }
+        String login = user.getLogin();
+        Integer loginOwner = login == null ? null : idsByLogin.putIfAbsent(login, user.getId());
+        if (loginOwner != null && !loginOwner.equals(user.getId())) {
+            if (emailOwner == null && email != null) {
+                idsByEmail.remove(email, user.getId());
+            }
+            throw new ConflictException("Пользователь с login = " + login + " уже существует.");
+        }
+    }
+
+    private void checkKeysFree(List<User> newUsers) {
+        Set<String> emails = new HashSet<>();
+        Set<String> logins = new HashSet<>();
+        for (User user : newUsers) {
+            String email = emailKey(user.getEmail());
+            if (email != null && (idsByEmail.containsKey(email) || !emails.add(email))) {
+                throw new ConflictException("Пользователь с email = " + user.getEmail() + " уже существует.");
+            }
+            String login = user.getLogin();
+            if (login != null && (idsByLogin.containsKey(login) || !logins.add(login))) {
+                throw new ConflictException("Пользователь с login = " + login + " уже существует.");
+            }
+        }
+    }
+
+    private void overwriteKeys(User user) {
+        String email = emailKey(user.getEmail());
+        if (email != null) {
+            idsByEmail.put(email, user.getId());
+        }
+        if (user.getLogin() != null) {
+            idsByLogin.put(user.getLogin(), user.getId());
+        }
+    }
+
+    private void releaseKeys(User user) {
+        String email = emailKey(user.getEmail());
+        if (email != null) {
+            idsByEmail.remove(email, user.getId());
+        }
+        if (user.getLogin() != null) {
+            idsByLogin.remove(user.getLogin(), user.getId());
+        }
+    }
+
+    private void releaseChangedKeys(User previous, User updated) {
+        String email = emailKey(previous.getEmail());
+        if (email != null && !email.equals(emailKey(updated.getEmail()))) {
+            idsByEmail.remove(email, previous.getId());
+        }
+        if (previous.getLogin() != null && !previous.getLogin().equals(updated.getLogin())) {
+            idsByLogin.remove(previous.getLogin(), previous.getId());
+        }
+    }
+
+    private static String emailKey(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
     }
 
+    /* Как и для лайков фильмов, дружба попадает в added, только если изменила набор друзей под блокировкой. */
+    private long befriend(Friendship friendship, List<Friendship> added) {
+        int userId = friendship.getUserId();
+        int friendId = friendship.getFriendId();
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = load(userId);
+            User friend = load(friendId);
+            if (user == null || friend == null) {
+                return StorageJournal.NOT_LOGGED;
+            }
+            boolean changed = false;
+            if (!user.getFriends().contains(friendId)) {
+                IntHashSet friends = new IntHashSet(user.getFriends());
+                friends.add(friendId);
+                replaceFriends(user, friends);
+                friendLinkCount.incrementAndGet();
+                friend = users.get(friendId);
+                changed = true;
+            }
+            if (!friend.getFriends().contains(userId)) {
+                IntHashSet friends = new IntHashSet(friend.getFriends());
+                friends.add(userId);
+                replaceFriends(friend, friends);
+                friendLinkCount.incrementAndGet();
+                changed = true;
+            }
+            if (!changed) {
+                return StorageJournal.NOT_LOGGED;
+            }
+            added.add(friendship);
+            return journal.append(new JournalRecord.FriendAdded(userId, friendId));
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    }
+
+    private long unfriend(Friendship friendship, List<Friendship> removed) {
+        int userId = friendship.getUserId();
+        int friendId = friendship.getFriendId();
+        locks.lockBoth(userId, friendId);
+        try {
+            User user = load(userId);
+            User friend = load(friendId);
+            boolean changed = false;
+            if (user != null && user.getFriends().contains(friendId)) {
+                IntHashSet friends = new IntHashSet(user.getFriends());
+                friends.remove(friendId);
+                replaceFriends(user, friends);
+                friendLinkCount.decrementAndGet();
+                friend = users.get(friendId);
+                changed = true;
+            }
+            if (friend != null && friend.getFriends().contains(userId)) {
+                IntHashSet friends = new IntHashSet(friend.getFriends());
+                friends.remove(userId);
+                replaceFriends(friend, friends);
+                friendLinkCount.decrementAndGet();
+                changed = true;
+            }
+            if (!changed) {
+                return StorageJournal.NOT_LOGGED;
+            }
+            removed.add(friendship);
+            return journal.append(new JournalRecord.FriendDeleted(userId, friendId));
+        } finally {
+            locks.unlockBoth(userId, friendId);
+        }
+    }
+
+    private void replaceFriends(User user, IntHashSet friends) {
+        users.put(user.getId(), user.toBuilder()
+                .friends(friends.freeze())
+                .version(user.getVersion() + 1)
+                .build());
+    }
+
+    private User load(int id) {
+        User user = users.get(id);
+        SnapshotTable<User> table = snapshot;
+        if (user != null || table == null) {
+            return user;
+        }
+        int index = table.indexOf(id);
+        if (index < 0 || !table.claim(index)) {
+            return null;
+        }
+        user = table.row(index);
+        user.getFriends().freeze();
+        user.setVersion(1);
+        users.put(id, user);
+        userCount.incrementAndGet();
+        friendLinkCount.addAndGet(user.getFriends().size());
+        return user;
+    }
+
+    private enum PutMode {
+        CREATE,
+        UPDATE,
+        RESTORE
+    }
 }
@@ -0,0 +1,426 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+
+    private static final String SELECT_FILMS = "SELECT id, name, description, release_date, duration, version FROM films";
+    private static final String SELECT_SUMMARIES = "SELECT id, name, release_date, duration, like_count, version "
+            + "FROM films";
+    /* Версии хранятся в базе и переживают перезапуск, поэтому поколение одно на всё время жизни базы. */
+    private static final String VERSION_GENERATION = "db";
+    private static final String CHANGE_LIKE_COUNT = "UPDATE films SET like_count = like_count + ?, "
+            + "version = version + 1 WHERE id = ?";
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) SELECT ?, ? "
+            + "WHERE EXISTS (SELECT 1 FROM users WHERE id = ?) "
+            + "AND EXISTS (SELECT 1 FROM films WHERE id = ?) "
+            + "AND NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+
+    private static final RowMapper<Film> FILM_MAPPER = (rs, rowNum) -> Film.builder()
+            .id(rs.getInt("id"))
+            .name(rs.getString("name"))
+            .description(rs.getString("description"))
+            .releaseDate(rs.getObject("release_date", LocalDate.class))
+            .duration(rs.getObject("duration", Integer.class))
+            .version(rs.getLong("version"))
+            .build();
+
+    private static final RowMapper<FilmSummary> SUMMARY_MAPPER = (rs, rowNum) -> new FilmSummary(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getObject("release_date", LocalDate.class),
+            rs.getObject("duration", Integer.class),
+            rs.getInt("like_count"),
+            rs.getLong("version"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ParallelHydrator hydrator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public JdbcFilmStorage(JdbcTemplate jdbcTemplate, ParallelHydrator hydrator,
+                           TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hydrator = hydrator;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " ORDER BY id", FILM_MAPPER);
+        Map<Integer, Film> filmsById = byId(films);
+        jdbcTemplate.query("SELECT film_id, user_id FROM film_likes", rs -> {
+            Film film = filmsById.get(rs.getInt("film_id"));
+            if (film != null) {
+                film.getLikes().add(rs.getInt("user_id"));
+            }
+        });
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(Integer cursor, int limit) {
+        List<Film> films = cursor == null
+                ? jdbcTemplate.query(SELECT_FILMS + " ORDER BY id LIMIT ?", FILM_MAPPER, limit)
+                : jdbcTemplate.query(SELECT_FILMS + " WHERE id > ? ORDER BY id LIMIT ?", FILM_MAPPER, cursor, limit);
+        return withLikes(films);
+    }
+
+    @Override
+    public List<FilmSummary> getAllFilmSummaries() {
+        return jdbcTemplate.query(SELECT_SUMMARIES + " ORDER BY id", SUMMARY_MAPPER);
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesPage(Integer cursor, int limit) {
+        return cursor == null
+                ? jdbcTemplate.query(SELECT_SUMMARIES + " ORDER BY id LIMIT ?", SUMMARY_MAPPER, limit)
+                : jdbcTemplate.query(SELECT_SUMMARIES + " WHERE id > ? ORDER BY id LIMIT ?", SUMMARY_MAPPER, cursor,
+                limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByFilter(FilmFilter filter, Integer cursor, int limit) {
+        List<Object> args = new ArrayList<>();
+        String where = filterConditions(filter, cursor, args);
+        args.add(limit);
+        return withLikes(jdbcTemplate.query(SELECT_FILMS + where + " ORDER BY id LIMIT ?", FILM_MAPPER,
+                args.toArray()));
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesByFilter(FilmFilter filter, Integer cursor, int limit) {
+        List<Object> args = new ArrayList<>();
+        String where = filterConditions(filter, cursor, args);
+        args.add(limit);
+        return jdbcTemplate.query(SELECT_SUMMARIES + where + " ORDER BY id LIMIT ?", SUMMARY_MAPPER, args.toArray());
+    }
+
+    @Override
+    public Film getFilmById(Integer id) {
+        return withLikes(jdbcTemplate.query(SELECT_FILMS + " WHERE id = ?", FILM_MAPPER, id))
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return hydrator.hydrate(ids, this::loadFilms);
+    }
+
+    @Override
+    public void deleteFilmById(Integer id) {
+        jdbcTemplate.update("DELETE FROM films WHERE id = ?", id);
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Film film) {
+        if (jdbcTemplate.update("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, "
+                        + "version = version + 1 WHERE id = ?",
+                film.getName(), film.getDescription(), toDate(film), film.getDuration(), film.getId()) == 0) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден.");
+        }
+        return withVersion(film);
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Film film, long expectedVersion) {
+        if (jdbcTemplate.update("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, "
+                        + "version = version + 1 WHERE id = ? AND version = ?",
+                film.getName(), film.getDescription(), toDate(film), film.getDuration(), film.getId(),
+                expectedVersion) == 0) {
+            if (getFilmById(film.getId()) == null) {
+                throw new NotFoundException("Фильм с id = " + film.getId() + " не найден.");
+            }
+            throw new PreconditionFailedException("Фильм с id = " + film.getId() + " изменён другим запросом.");
+        }
+        return withVersion(film);
+    }
+
+    @Override
+    @Transactional
+    public Film createFilm(Film film) {
+        return createFilms(List.of(film)).getFirst();
+    }
+
+    @Override
+    @Transactional
+    public List<Film> createFilms(List<Film> films) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement("INSERT INTO films (name, description, release_date, duration) "
+                        + "VALUES (?, ?, ?, ?)", new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setDate(3, toDate(film));
+                        ps.setObject(4, film.getDuration(), Types.INTEGER);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                },
+                keyHolder);
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keyHolder.getKeyList().get(i).get("id")).intValue());
+            film.setVersion(1);
+            film.setLikes(new IntHashSet());
+        }
+        return films;
+    }
+
+    /*
+     * Лайки и like_count меняются в одной транзакции. Конфликт с параллельной вставкой откатывает её целиком,
+     * поэтому транзакция открывается здесь, а не аннотацией: повтор должен начинаться в новой транзакции.
+     */
+    @Override
+    public boolean addLike(Integer filmId, Integer userId) {
+        try {
+            return !insertLikesInTransaction(List.of(Like.builder()
+                    .filmId(filmId)
+                    .userId(userId)
+                    .build())).isEmpty();
+        } catch (DuplicateKeyException e) {
+            // лайк уже поставлен параллельным запросом
+            return false;
+        }
+    }
+
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        try {
+            return insertLikesInTransaction(likes);
+        } catch (DuplicateKeyException e) {
+            // пакет откатился целиком, часть лайков поставлена параллельным запросом: повторяем по одному
+            List<Like> added = new ArrayList<>(likes.size());
+            for (Like like : likes) {
+                if (addLike(like.getFilmId(), like.getUserId())) {
+                    added.add(like);
+                }
+            }
+            return added;
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteLike(Integer filmId, Integer userId) {
+        if (jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", filmId, userId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(CHANGE_LIKE_COUNT, -1, filmId);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int[] deleteUserLikes(Integer userId) {
+        int[] filmIds = getLikedFilmIds(userId);
+        if (filmIds.length > 0) {
+            jdbcTemplate.update("UPDATE films SET like_count = like_count - 1, version = version + 1 "
+                    + "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)", userId);
+            jdbcTemplate.update("DELETE FROM film_likes WHERE user_id = ?", userId);
+        }
+        return filmIds;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return withLikes(jdbcTemplate.query(SELECT_FILMS + " ORDER BY like_count DESC, id LIMIT ?", FILM_MAPPER,
+                count));
+    }
+
+    @Override
+    public List<FilmSummary> getPopularFilmSummaries(int count) {
+        return jdbcTemplate.query(SELECT_SUMMARIES + " ORDER BY like_count DESC, id LIMIT ?", SUMMARY_MAPPER, count);
+    }
+
+    @Override
+    public int[] getFilmLikes(Integer filmId, Integer cursor, int limit) {
+        return jdbcTemplate.queryForList("SELECT user_id FROM film_likes WHERE film_id = ? AND user_id > ? "
+                        + "ORDER BY user_id LIMIT ?", Integer.class, filmId, cursor == null ? Integer.MIN_VALUE : cursor,
+                        limit)
+                .stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    @Override
+    public int[] getLikedFilmIds(Integer userId) {
+        return jdbcTemplate.queryForList("SELECT film_id FROM film_likes WHERE user_id = ?", Integer.class, userId)
+                .stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    @Override
+    public int getFilmsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class);
+    }
+
+    @Override
+    public long getLikesCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes", Long.class);
+    }
+
+    @Override
+    public String getVersionGeneration() {
+        return VERSION_GENERATION;
+    }
+
+    private Film withVersion(Film film) {
+        film.setVersion(jdbcTemplate.queryForObject("SELECT version FROM films WHERE id = ?", Long.class,
+                film.getId()));
+        return film;
+    }
+
+    private List<Like> insertLikesInTransaction(List<Like> likes) {
+        return transactionTemplate.execute(status -> {
+            List<Like> added = insertLikes(likes);
+            updateLikeCounts(CHANGE_LIKE_COUNT, added);
+            return added;
+        });
+    }
+
+    /* Возвращает лайки, которые действительно добавлены. */
+    private List<Like> insertLikes(List<Like> likes) {
+        List<Like> added = new ArrayList<>(likes.size());
+        if (likes.isEmpty()) {
+            return added;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_LIKE, likes, likes.size(),
+                (ps, like) -> setLike(ps, like.getFilmId(), like.getUserId()));
+        for (int i = 0; i < likes.size(); i++) {
+            if (counts[0][i] != 0) {
+                added.add(likes.get(i));
+            }
+        }
+        return added;
+    }
+
+    private void updateLikeCounts(String sql, List<Like> added) {
+        Map<Integer, Integer> addedByFilm = new LinkedHashMap<>();
+        for (Like like : added) {
+            addedByFilm.merge(like.getFilmId(), 1, Integer::sum);
+        }
+        if (!addedByFilm.isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(addedByFilm.size());
+            addedByFilm.forEach((filmId, count) -> rows.add(new Object[]{count, filmId}));
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+
+    private List<Film> loadFilms(int[] ids) {
+        Map<Integer, Film> filmsById = byId(withLikes(jdbcTemplate.query(SELECT_FILMS + " WHERE id = ANY(?)",
+                ps -> ps.setArray(1, JdbcSupport.idArray(ps, ids)), FILM_MAPPER)));
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (int id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    private List<Film> withLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> filmsById = byId(films);
+        jdbcTemplate.query("SELECT film_id, user_id FROM film_likes WHERE film_id = ANY(?)",
+                ps -> ps.setArray(1, JdbcSupport.idArray(ps, filmsById.keySet())),
+                rs -> {
+                    filmsById.get(rs.getInt("film_id")).getLikes().add(rs.getInt("user_id"));
+                });
+        return films;
+    }
+
+    /* Выбор между films_release_date_idx и films_duration_idx остаётся за планировщиком базы. */
+    private static String filterConditions(FilmFilter filter, Integer cursor, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (cursor != null) {
+            conditions.add("id > ?");
+            args.add(cursor);
+        }
+        if (filter.releasedFrom() != null) {
+            conditions.add("release_date >= ?");
+            args.add(Date.valueOf(filter.releasedFrom()));
+        }
+        if (filter.releasedTo() != null) {
+            conditions.add("release_date <= ?");
+            args.add(Date.valueOf(filter.releasedTo()));
+        }
+        if (filter.minDuration() != null) {
+            conditions.add("duration >= ?");
+            args.add(filter.minDuration());
+        }
+        if (filter.maxDuration() != null) {
+            conditions.add("duration <= ?");
+            args.add(filter.maxDuration());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+    private static Map<Integer, Film> byId(List<Film> films) {
+        Map<Integer, Film> filmsById = new HashMap<>(films.size() * 2);
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        return filmsById;
+    }
+
+    private static void setLike(PreparedStatement ps, int filmId, int userId) throws SQLException {
+        ps.setInt(1, filmId);
+        ps.setInt(2, userId);
+        ps.setInt(3, userId);
+        ps.setInt(4, filmId);
+        ps.setInt(5, filmId);
+        ps.setInt(6, userId);
+    }
+
+    private static Date toDate(Film film) {
+        return film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate());
+    }
+}
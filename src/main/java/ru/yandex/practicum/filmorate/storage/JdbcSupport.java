@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+final class JdbcSupport {
+
+    private JdbcSupport() {
+    }
+
+    static Array idArray(PreparedStatement ps, Collection<Integer> ids) throws SQLException {
+        return ps.getConnection().createArrayOf("INTEGER", ids.toArray());
+    }
+
+    /* Увеличивает версию строк, у которых изменились связи. */
+    static void incrementVersions(JdbcTemplate jdbcTemplate, String table, Collection<Integer> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update("UPDATE " + table + " SET version = version + 1 WHERE id = ANY(?)",
+                    ps -> ps.setArray(1, idArray(ps, ids)));
+        }
+    }
+
+    static Array idArray(PreparedStatement ps, int[] ids) throws SQLException {
+        Integer[] values = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = ids[i];
+        }
+        return ps.getConnection().createArrayOf("INTEGER", values);
+    }
+}
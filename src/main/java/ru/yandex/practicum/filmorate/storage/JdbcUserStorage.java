@@ -0,0 +1,370 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcUserStorage implements UserStorage {
+
+    private static final String SELECT_USERS = "SELECT id, email, login, name, birthday, version FROM users";
+    /* Как и у фильмов, версии пользователей хранятся в базе. */
+    private static final String VERSION_GENERATION = "db";
+    private static final String DUPLICATE_USER = "Пользователь с таким email или login уже существует.";
+    private static final String INSERT_FRIEND = "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? "
+            + "WHERE EXISTS (SELECT 1 FROM users WHERE id = ?) "
+            + "AND NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+
+    private static final RowMapper<User> USER_MAPPER = (rs, rowNum) -> User.builder()
+            .id(rs.getInt("id"))
+            .email(rs.getString("email"))
+            .login(rs.getString("login"))
+            .name(rs.getString("name"))
+            .birthday(rs.getObject("birthday", LocalDate.class))
+            .version(rs.getLong("version"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ParallelHydrator hydrator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public JdbcUserStorage(JdbcTemplate jdbcTemplate, ParallelHydrator hydrator,
+                           TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hydrator = hydrator;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " ORDER BY id", USER_MAPPER);
+        Map<Integer, User> usersById = byId(users);
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships", rs -> {
+            User user = usersById.get(rs.getInt("user_id"));
+            if (user != null) {
+                user.getFriends().add(rs.getInt("friend_id"));
+            }
+        });
+        return users;
+    }
+
+    @Override
+    public List<User> getUsersPage(Integer cursor, int limit) {
+        List<User> users = cursor == null
+                ? jdbcTemplate.query(SELECT_USERS + " ORDER BY id LIMIT ?", USER_MAPPER, limit)
+                : jdbcTemplate.query(SELECT_USERS + " WHERE id > ? ORDER BY id LIMIT ?", USER_MAPPER, cursor, limit);
+        return withFriends(users);
+    }
+
+    @Override
+    public User getUserById(Integer id) {
+        return withFriends(jdbcTemplate.query(SELECT_USERS + " WHERE id = ?", USER_MAPPER, id))
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return withFriends(jdbcTemplate.query(SELECT_USERS + " WHERE email_key = LOWER(?)", USER_MAPPER, email))
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        return withFriends(jdbcTemplate.query(SELECT_USERS + " WHERE login = ?", USER_MAPPER, login))
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public List<User> getUsersByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return hydrator.hydrate(ids, this::loadUsers);
+    }
+
+    @Override
+    public List<User> getFriends(Integer userId) {
+        return getUsersByIds(toIntArray(jdbcTemplate.queryForList(
+                "SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id", Integer.class, userId)));
+    }
+
+    @Override
+    public List<User> getCommonFriends(List<Integer> userIds) {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+        return getUsersByIds(toIntArray(jdbcTemplate.query("SELECT friend_id FROM friendships "
+                        + "WHERE user_id = ANY(?) "
+                        + "GROUP BY friend_id HAVING COUNT(*) = ? "
+                        + "ORDER BY friend_id",
+                ps -> {
+                    ps.setArray(1, JdbcSupport.idArray(ps, distinctIds));
+                    ps.setInt(2, distinctIds.size());
+                }, (rs, rowNum) -> rs.getInt("friend_id"))));
+    }
+
+    @Override
+    @Transactional
+    public User createUser(User user) {
+        return createUsers(List.of(user)).getFirst();
+    }
+
+    /* Уникальность email и login обеспечивают индексы users_email_key_uq и users_login_uq. */
+    @Override
+    @Transactional
+    public List<User> createUsers(List<User> users) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                            new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            User user = users.get(i);
+                            ps.setString(1, user.getEmail());
+                            ps.setString(2, user.getLogin());
+                            ps.setString(3, user.getName());
+                            ps.setDate(4, toDate(user));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return users.size();
+                        }
+                    },
+                    keyHolder);
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException(DUPLICATE_USER);
+        }
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            user.setId(((Number) keyHolder.getKeyList().get(i).get("id")).intValue());
+            user.setVersion(1);
+            user.setFriends(new IntHashSet());
+        }
+        return users;
+    }
+
+    @Override
+    @Transactional
+    public User updateUser(User user) {
+        int updated;
+        try {
+            updated = jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, "
+                            + "version = version + 1 WHERE id = ?",
+                    user.getEmail(), user.getLogin(), user.getName(), toDate(user), user.getId());
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException(DUPLICATE_USER);
+        }
+        if (updated == 0) {
+            throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден.");
+        }
+        return withVersion(user);
+    }
+
+    @Override
+    @Transactional
+    public User updateUser(User user, long expectedVersion) {
+        int updated;
+        try {
+            updated = jdbcTemplate.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, "
+                            + "version = version + 1 WHERE id = ? AND version = ?",
+                    user.getEmail(), user.getLogin(), user.getName(), toDate(user), user.getId(), expectedVersion);
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException(DUPLICATE_USER);
+        }
+        if (updated == 0) {
+            if (getUserById(user.getId()) == null) {
+                throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден.");
+            }
+            throw new PreconditionFailedException("Пользователь с id = " + user.getId() + " изменён другим запросом.");
+        }
+        return withVersion(user);
+    }
+
+    @Override
+    @Transactional
+    public void deleteUserById(Integer id) {
+        // каскадное удаление меняет лайки фильмов и списки друзей, их счётчики и версии нужно обновить заранее
+        jdbcTemplate.update("UPDATE films SET like_count = like_count - 1, version = version + 1 "
+                + "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)", id);
+        jdbcTemplate.update("UPDATE users SET version = version + 1 "
+                + "WHERE id IN (SELECT friend_id FROM friendships WHERE user_id = ?)", id);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+    }
+
+    @Override
+    public boolean addFriend(Integer userId, Integer friendId) {
+        return !addFriends(List.of(Friendship.builder()
+                .userId(userId)
+                .friendId(friendId)
+                .build())).isEmpty();
+    }
+
+    /*
+     * Обе симметричные строки и версии пользователей меняются в одной транзакции. Как и для лайков фильмов,
+     * транзакция открывается здесь: после конфликта пакет откатывается, а повтор идёт в новых транзакциях.
+     */
+    @Override
+    public List<Friendship> addFriends(List<Friendship> friendships) {
+        try {
+            return insertFriendshipsInTransaction(friendships);
+        } catch (DuplicateKeyException e) {
+            // часть дружб добавлена параллельным запросом, повторяем по одной
+            List<Friendship> added = new ArrayList<>(friendships.size());
+            for (Friendship friendship : friendships) {
+                try {
+                    added.addAll(insertFriendshipsInTransaction(List.of(friendship)));
+                } catch (DuplicateKeyException duplicate) {
+                    // эта дружба уже добавлена параллельным запросом
+                }
+            }
+            return added;
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteFriend(Integer userId, Integer friendId) {
+        if (jdbcTemplate.update("DELETE FROM friendships WHERE (user_id = ? AND friend_id = ?) "
+                + "OR (user_id = ? AND friend_id = ?)", userId, friendId, friendId, userId) == 0) {
+            return false;
+        }
+        JdbcSupport.incrementVersions(jdbcTemplate, "users", List.of(userId, friendId));
+        return true;
+    }
+
+    @Override
+    public int getUsersCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+    }
+
+    @Override
+    public long getFriendshipsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Long.class) / 2;
+    }
+
+    @Override
+    public String getVersionGeneration() {
+        return VERSION_GENERATION;
+    }
+
+    private User withVersion(User user) {
+        user.setVersion(jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = ?", Long.class,
+                user.getId()));
+        return user;
+    }
+
+    private List<Friendship> insertFriendshipsInTransaction(List<Friendship> friendships) {
+        return transactionTemplate.execute(status -> {
+            Set<Integer> changedUserIds = new LinkedHashSet<>();
+            List<Friendship> added = insertFriendships(friendships, changedUserIds);
+            JdbcSupport.incrementVersions(jdbcTemplate, "users", changedUserIds);
+            return added;
+        });
+    }
+
+    /*
+     * Возвращает дружбы, добавившие хотя бы одну из двух симметричных строк, а в changedUserIds собирает id
+     * пользователей, у которых действительно появился новый друг.
+     */
+    private List<Friendship> insertFriendships(List<Friendship> friendships, Set<Integer> changedUserIds) {
+        List<Friendship> added = new ArrayList<>(friendships.size());
+        if (friendships.isEmpty()) {
+            return added;
+        }
+        List<Object[]> rows = new ArrayList<>(friendships.size() * 2);
+        for (Friendship friendship : friendships) {
+            int userId = friendship.getUserId();
+            int friendId = friendship.getFriendId();
+            rows.add(new Object[]{userId, friendId, friendId, userId, friendId});
+            rows.add(new Object[]{friendId, userId, userId, friendId, userId});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_FRIEND, rows);
+        for (int i = 0; i < rows.size(); i++) {
+            if (counts[i] != 0) {
+                changedUserIds.add((Integer) rows.get(i)[0]);
+            }
+        }
+        for (int i = 0; i < friendships.size(); i++) {
+            if (counts[2 * i] != 0 || counts[2 * i + 1] != 0) {
+                added.add(friendships.get(i));
+            }
+        }
+        return added;
+    }
+
+    private List<User> loadUsers(int[] ids) {
+        Map<Integer, User> usersById = byId(withFriends(jdbcTemplate.query(SELECT_USERS + " WHERE id = ANY(?)",
+                ps -> ps.setArray(1, JdbcSupport.idArray(ps, ids)), USER_MAPPER)));
+        List<User> users = new ArrayList<>(usersById.size());
+        for (int id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Integer, User> usersById = byId(users);
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE user_id = ANY(?)",
+                ps -> ps.setArray(1, JdbcSupport.idArray(ps, usersById.keySet())),
+                rs -> {
+                    usersById.get(rs.getInt("user_id")).getFriends().add(rs.getInt("friend_id"));
+                });
+        return users;
+    }
+
+    private static Map<Integer, User> byId(List<User> users) {
+        Map<Integer, User> usersById = new HashMap<>(users.size() * 2);
+        for (User user : users) {
+            usersById.put(user.getId(), user);
+        }
+        return usersById;
+    }
+
+    private static int[] toIntArray(List<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Date toDate(User user) {
+        return user.getBirthday() == null ? null : Date.valueOf(user.getBirthday());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/*
+ * Делит большую выборку по id на непрерывные части и загружает их одновременно, по виртуальному потоку на часть.
+ * Исполнитель живёт в пределах вызова: до возврата из hydrate() каждая часть либо загружена, либо отменена.
+ * Части ожидаются в порядке завершения, поэтому первая же ошибка отменяет остальные, не дожидаясь более ранних.
+ * Имеет смысл только для хранилищ, упирающихся в ввод-вывод, где каждая часть ждёт своего соединения, а не
+ * стоит в очереди за предыдущей.
+ */
+@Component
+public class ParallelHydrator {
+
+    private final boolean enabled;
+    private final int parallelism;
+    private final int minChunkSize;
+
+    @Autowired
+    public ParallelHydrator(@Value("${filmorate.storage.hydration.parallel:false}") boolean enabled,
+                            @Value("${filmorate.storage.hydration.parallelism:4}") int parallelism,
+                            @Value("${filmorate.storage.hydration.min-chunk-size:500}") int minChunkSize) {
+        this.enabled = enabled;
+        this.parallelism = parallelism;
+        this.minChunkSize = minChunkSize;
+    }
+
+    public <T> List<T> hydrate(int[] ids, Function<int[], List<T>> loader) {
+        int chunks = enabled ? Math.min(parallelism, ids.length / minChunkSize) : 1;
+        if (chunks <= 1) {
+            return loader.apply(ids);
+        }
+        int chunkSize = (ids.length + chunks - 1) / chunks;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<List<T>> completion = new ExecutorCompletionService<>(executor);
+            List<Future<List<T>>> parts = new ArrayList<>(chunks);
+            for (int from = 0; from < ids.length; from += chunkSize) {
+                int[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + chunkSize));
+                parts.add(completion.submit(() -> loader.apply(chunk)));
+            }
+            awaitAll(completion, parts.size(), executor);
+            List<T> result = new ArrayList<>(ids.length);
+            for (Future<List<T>> part : parts) {
+                result.addAll(part.resultNow());
+            }
+            return result;
+        }
+    }
+
+    private static <T> void awaitAll(CompletionService<List<T>> completion, int count, ExecutorService executor) {
+        try {
+            for (int i = 0; i < count; i++) {
+                completion.take().get();
+            }
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Ошибка загрузки данных.", e.getCause());
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Загрузка данных прервана.", e);
+        }
+    }
+}
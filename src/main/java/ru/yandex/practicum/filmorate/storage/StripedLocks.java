@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StripedLocks {
+
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public void lock(int id) {
+        locks[indexFor(id)].lock();
+    }
+
+    public void unlock(int id) {
+        locks[indexFor(id)].unlock();
+    }
+
+    public void lockBoth(int firstId, int secondId) {
+        int first = indexFor(firstId);
+        int second = indexFor(secondId);
+        locks[Math.min(first, second)].lock();
+        if (first != second) {
+            locks[Math.max(first, second)].lock();
+        }
+    }
+
+    public void unlockBoth(int firstId, int secondId) {
+        int first = indexFor(firstId);
+        int second = indexFor(secondId);
+        if (first != second) {
+            locks[Math.max(first, second)].unlock();
+        }
+        locks[Math.min(first, second)].unlock();
+    }
+
+    private int indexFor(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+}
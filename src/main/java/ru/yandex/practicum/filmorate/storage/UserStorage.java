@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
@@ -8,11 +9,44 @@ public interface UserStorage {
 
     List<User> getAllUsers();
 
+    List<User> getUsersPage(Integer cursor, int limit);
+
     User getUserById(Integer id);
 
+    User getUserByEmail(String email);
+
+    User getUserByLogin(String login);
+
+    List<User> getUsersByIds(int[] ids);
+
+    List<User> getFriends(Integer userId);
+
+    List<User> getCommonFriends(List<Integer> userIds);
+
     User createUser(User user);
 
+    List<User> createUsers(List<User> users);
+
     User updateUser(User user);
 
+    /* Обновляет пользователя, только если его текущая версия равна expectedVersion. */
+    User updateUser(User user, long expectedVersion);
+
     void deleteUserById(Integer id);
+
+    /* Возвращает true, если набор друзей хотя бы одного из пользователей изменился. */
+    boolean addFriend(Integer userId, Integer friendId);
+
+    /* Возвращает дружбы, которые действительно что-то изменили. */
+    List<Friendship> addFriends(List<Friendship> friendships);
+
+    /* Возвращает true, если набор друзей хотя бы одного из пользователей изменился. */
+    boolean deleteFriend(Integer userId, Integer friendId);
+
+    int getUsersCount();
+
+    long getFriendshipsCount();
+
+    /* Поколение версий: версии пользователей сравнимы только в пределах одного поколения. */
+    String getVersionGeneration();
 }
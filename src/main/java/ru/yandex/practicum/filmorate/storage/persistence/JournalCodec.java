@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static ru.yandex.practicum.filmorate.storage.persistence.BinaryFormat.readDate;
+import static ru.yandex.practicum.filmorate.storage.persistence.BinaryFormat.readInteger;
+import static ru.yandex.practicum.filmorate.storage.persistence.BinaryFormat.readString;
+import static ru.yandex.practicum.filmorate.storage.persistence.BinaryFormat.writeDate;
+import static ru.yandex.practicum.filmorate.storage.persistence.BinaryFormat.writeInteger;
+import static ru.yandex.practicum.filmorate.storage.persistence.BinaryFormat.writeString;
+
+final class JournalCodec {
+
+    private static final byte FILM_PUT = 1;
+    private static final byte FILM_DELETED = 2;
+    private static final byte USER_PUT = 3;
+    private static final byte USER_DELETED = 4;
+    private static final byte LIKE_ADDED = 5;
+    private static final byte LIKE_DELETED = 6;
+    private static final byte FRIEND_ADDED = 7;
+    private static final byte FRIEND_DELETED = 8;
+
+    private JournalCodec() {
+    }
+
+    static void encode(JournalRecord record, DataOutput out) throws IOException {
+        switch (record) {
+            case JournalRecord.FilmPut put -> {
+                out.writeByte(FILM_PUT);
+                out.writeInt(put.id());
+                writeString(out, put.name());
+                writeString(out, put.description());
+                writeDate(out, put.releaseDate());
+                writeInteger(out, put.duration());
+            }
+            case JournalRecord.FilmDeleted deleted -> {
+                out.writeByte(FILM_DELETED);
+                out.writeInt(deleted.id());
+            }
+            case JournalRecord.UserPut put -> {
+                out.writeByte(USER_PUT);
+                out.writeInt(put.id());
+                writeString(out, put.email());
+                writeString(out, put.login());
+                writeString(out, put.name());
+                writeDate(out, put.birthday());
+            }
+            case JournalRecord.UserDeleted deleted -> {
+                out.writeByte(USER_DELETED);
+                out.writeInt(deleted.id());
+            }
+            case JournalRecord.LikeAdded like -> writePair(out, LIKE_ADDED, like.filmId(), like.userId());
+            case JournalRecord.LikeDeleted like -> writePair(out, LIKE_DELETED, like.filmId(), like.userId());
+            case JournalRecord.FriendAdded friend -> writePair(out, FRIEND_ADDED, friend.userId(), friend.friendId());
+            case JournalRecord.FriendDeleted friend ->
+                    writePair(out, FRIEND_DELETED, friend.userId(), friend.friendId());
+        }
+    }
+
+    static JournalRecord decode(DataInput in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case FILM_PUT -> new JournalRecord.FilmPut(in.readInt(), readString(in), readString(in), readDate(in),
+                    readInteger(in));
+            case FILM_DELETED -> new JournalRecord.FilmDeleted(in.readInt());
+            case USER_PUT -> new JournalRecord.UserPut(in.readInt(), readString(in), readString(in), readString(in),
+                    readDate(in));
+            case USER_DELETED -> new JournalRecord.UserDeleted(in.readInt());
+            case LIKE_ADDED -> new JournalRecord.LikeAdded(in.readInt(), in.readInt());
+            case LIKE_DELETED -> new JournalRecord.LikeDeleted(in.readInt(), in.readInt());
+            case FRIEND_ADDED -> new JournalRecord.FriendAdded(in.readInt(), in.readInt());
+            case FRIEND_DELETED -> new JournalRecord.FriendDeleted(in.readInt(), in.readInt());
+            default -> throw new IOException("Неизвестный тип записи журнала: " + type);
+        };
+    }
+
+    private static void writePair(DataOutput out, byte type, int first, int second) throws IOException {
+        out.writeByte(type);
+        out.writeInt(first);
+        out.writeInt(second);
+    }
+}
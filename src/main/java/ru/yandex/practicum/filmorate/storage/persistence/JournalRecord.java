@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+public sealed interface JournalRecord {
+
+    static FilmPut filmPut(Film film) {
+        return new FilmPut(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration());
+    }
+
+    static UserPut userPut(User user) {
+        return new UserPut(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+    }
+
+    record FilmPut(int id, String name, String description, LocalDate releaseDate, Integer duration)
+            implements JournalRecord {
+    }
+
+    record FilmDeleted(int id) implements JournalRecord {
+    }
+
+    record UserPut(int id, String email, String login, String name, LocalDate birthday) implements JournalRecord {
+    }
+
+    record UserDeleted(int id) implements JournalRecord {
+    }
+
+    record LikeAdded(int filmId, int userId) implements JournalRecord {
+    }
+
+    record LikeDeleted(int filmId, int userId) implements JournalRecord {
+    }
+
+    record FriendAdded(int userId, int friendId) implements JournalRecord {
+    }
+
+    record FriendDeleted(int userId, int friendId) implements JournalRecord {
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+public record MappedSnapshot(SnapshotStore.Header header, SnapshotTable<Film> films, SnapshotTable<User> users) {
+
+    static final int FILM_INT_COLUMNS = 2;
+    static final int FILM_STRING_COLUMNS = 2;
+    static final int USER_INT_COLUMNS = 1;
+    static final int USER_STRING_COLUMNS = 3;
+
+    static Film film(SnapshotTable<Film> table, int index) {
+        Film film = Film.builder()
+                .id(table.id(index))
+                .name(table.string(0, index))
+                .description(table.string(1, index))
+                .releaseDate(table.date(0, index))
+                .duration(table.integer(1, index))
+                .build();
+        for (int userId : table.adjacency(index)) {
+            film.getLikes().add(userId);
+        }
+        return film;
+    }
+
+    /* Email и login читаются прямо из столбцов снимка, не разбирая строку целиком. */
+    public static String userEmail(SnapshotTable<User> table, int index) {
+        return table.string(0, index);
+    }
+
+    public static String userLogin(SnapshotTable<User> table, int index) {
+        return table.string(1, index);
+    }
+
+    static User user(SnapshotTable<User> table, int index) {
+        User user = User.builder()
+                .id(table.id(index))
+                .email(userEmail(table, index))
+                .login(userLogin(table, index))
+                .name(table.string(2, index))
+                .birthday(table.date(0, index))
+                .build();
+        for (int friendId : table.adjacency(index)) {
+            user.getFriends().add(friendId);
+        }
+        return user;
+    }
+}
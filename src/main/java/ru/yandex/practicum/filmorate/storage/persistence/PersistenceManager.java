@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.OptionalLong;
+
+@Slf4j
+public class PersistenceManager {
+
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+
+    private int lastFilmId;
+    private int lastUserId;
+
+    public PersistenceManager(WriteAheadLog writeAheadLog,
+                              SnapshotStore snapshotStore,
+                              InMemoryFilmStorage filmStorage,
+                              InMemoryUserStorage userStorage) {
+        this.writeAheadLog = writeAheadLog;
+        this.snapshotStore = snapshotStore;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        long startedAt = System.nanoTime();
+        OptionalLong snapshotSegment = snapshotStore.findLatest();
+        long firstSegment = 0;
+        if (snapshotSegment.isPresent()) {
+            firstSegment = snapshotSegment.getAsLong();
+            MappedSnapshot snapshot = snapshotStore.open(firstSegment);
+            filmStorage.attachSnapshot(snapshot.films());
+            userStorage.attachSnapshot(snapshot.users());
+            lastFilmId = snapshot.header().lastFilmId();
+            lastUserId = snapshot.header().lastUserId();
+        }
+        long replayed = writeAheadLog.replay(firstSegment, this::apply);
+        filmStorage.restoreLastId(lastFilmId);
+        userStorage.restoreLastId(lastUserId);
+
+        List<Long> segments = writeAheadLog.listSegments();
+        long nextSegment = segments.isEmpty() ? firstSegment : Math.max(firstSegment, segments.getLast() + 1);
+        writeAheadLog.open(nextSegment);
+        // номера сегментов не повторяются: версии, отсчитанные заново после восстановления, получают новое поколение
+        filmStorage.restoreVersionGeneration("w" + nextSegment);
+        userStorage.restoreVersionGeneration("w" + nextSegment);
+        log.info("Данные восстановлены за {} мс: снимок {}, записей журнала {}.",
+                (System.nanoTime() - startedAt) / 1_000_000, snapshotSegment.isPresent() ? firstSegment : "нет",
+                replayed);
+
+        if (snapshotSegment.isPresent()) {
+            Thread warmUp = new Thread(this::warmUp, "snapshot-warm-up");
+            warmUp.setDaemon(true);
+            warmUp.start();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.persistence.snapshot-interval-ms:600000}",
+            fixedDelayString = "${filmorate.persistence.snapshot-interval-ms:600000}")
+    public void takeSnapshot() throws IOException {
+        long startedAt = System.nanoTime();
+        long segment = writeAheadLog.rotate();
+        List<Film> films = filmStorage.getAllFilms();
+        List<User> users = userStorage.getAllUsers();
+        snapshotStore.write(segment, new SnapshotStore.Header(filmStorage.getLastId(), userStorage.getLastId()),
+                films, users);
+        snapshotStore.deleteOlderThan(segment);
+        writeAheadLog.deleteSegmentsBefore(segment);
+        log.info("Снимок {} сохранен за {} мс: фильмов {}, пользователей {}.", segment,
+                (System.nanoTime() - startedAt) / 1_000_000, films.size(), users.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeAheadLog.close();
+    }
+
+    private void warmUp() {
+        long startedAt = System.nanoTime();
+        filmStorage.warmUp();
+        userStorage.warmUp();
+        log.info("Снимок загружен в память за {} мс.", (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void apply(JournalRecord record) {
+        switch (record) {
+            case JournalRecord.FilmPut put -> {
+                filmStorage.restoreFilm(Film.builder()
+                        .id(put.id())
+                        .name(put.name())
+                        .description(put.description())
+                        .releaseDate(put.releaseDate())
+                        .duration(put.duration())
+                        .build());
+                lastFilmId = Math.max(lastFilmId, put.id());
+            }
+            case JournalRecord.FilmDeleted deleted -> filmStorage.deleteFilmById(deleted.id());
+            case JournalRecord.UserPut put -> {
+                userStorage.restoreUser(User.builder()
+                        .id(put.id())
+                        .email(put.email())
+                        .login(put.login())
+                        .name(put.name())
+                        .birthday(put.birthday())
+                        .build());
+                lastUserId = Math.max(lastUserId, put.id());
+            }
+            case JournalRecord.UserDeleted deleted -> userStorage.deleteUserById(deleted.id());
+            case JournalRecord.LikeAdded like -> filmStorage.addLike(like.filmId(), like.userId());
+            case JournalRecord.LikeDeleted like -> filmStorage.deleteLike(like.filmId(), like.userId());
+            case JournalRecord.FriendAdded friend -> userStorage.addFriend(friend.userId(), friend.friendId());
+            case JournalRecord.FriendDeleted friend -> userStorage.deleteFriend(friend.userId(), friend.friendId());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/*
+ * Снимок называется по первому сегменту журнала, который он НЕ покрывает: восстановление загружает снимок N и
+ * проигрывает сегменты >= N. Снимки нечёткие (снимаются, пока идёт запись), но проигрывать хвост поверх них
+ * безопасно, потому что каждая запись журнала идемпотентна.
+ *
+ * Файл — заголовок фиксированной длины, за ним таблицы фильмов и пользователей (см. SnapshotTable) и завершающее
+ * магическое число. Таблицы отображаются в память, а не читаются, поэтому открыть снимок на десять строк стоит
+ * столько же, сколько на десять миллионов.
+ */
+public class SnapshotStore {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int MAGIC = 0x46534e50;
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = 4 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public record Header(int lastFilmId, int lastUserId) {
+    }
+
+    public OptionalLong findLatest() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return OptionalLong.empty();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .mapToLong(name -> Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(),
+                            name.length() - SNAPSHOT_SUFFIX.length())))
+                    .max();
+        }
+    }
+
+    public void write(long segment, Header header, Collection<Film> films, Collection<User> users) throws IOException {
+        SnapshotTable.Writer filmTable = new SnapshotTable.Writer(films.size(), MappedSnapshot.FILM_INT_COLUMNS,
+                MappedSnapshot.FILM_STRING_COLUMNS);
+        for (Film film : sortedById(films, Film::getId)) {
+            filmTable.row(film.getId(),
+                    new int[]{SnapshotTable.Writer.nullable(film.getReleaseDate()),
+                            SnapshotTable.Writer.nullable(film.getDuration())},
+                    film.getLikes().toSortedIntArray(),
+                    film.getName(), film.getDescription());
+        }
+        SnapshotTable.Writer userTable = new SnapshotTable.Writer(users.size(), MappedSnapshot.USER_INT_COLUMNS,
+                MappedSnapshot.USER_STRING_COLUMNS);
+        for (User user : sortedById(users, User::getId)) {
+            userTable.row(user.getId(),
+                    new int[]{SnapshotTable.Writer.nullable(user.getBirthday())},
+                    user.getFriends().toSortedIntArray(),
+                    user.getEmail(), user.getLogin(), user.getName());
+        }
+        if (filmTable.length() > Integer.MAX_VALUE || userTable.length() > Integer.MAX_VALUE) {
+            throw new IOException("Таблица снимка не помещается в одно отображение в память.");
+        }
+
+        Files.createDirectories(directory);
+        Path temporary = directory.resolve(snapshotName(segment) + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 256 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(header.lastFilmId());
+            out.writeInt(header.lastUserId());
+            out.writeLong(filmTable.length());
+            out.writeLong(userTable.length());
+            filmTable.writeTo(out);
+            userTable.writeTo(out);
+            out.writeInt(MAGIC);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(snapshotName(segment)), StandardCopyOption.ATOMIC_MOVE);
+        // без fsync каталога переименование может не пережить сбой, а покрытые снимком сегменты уже будут удалены
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public MappedSnapshot open(long segment) throws IOException {
+        Path path = directory.resolve(snapshotName(segment));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException("Снимок " + path + " поврежден: нет заголовка.");
+            }
+            ByteBuffer prefix = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            if (prefix.getInt() != MAGIC || prefix.getInt() != VERSION) {
+                throw new IOException("Неизвестный формат снимка " + path);
+            }
+            Header header = new Header(prefix.getInt(), prefix.getInt());
+            long filmsLength = prefix.getLong();
+            long usersLength = prefix.getLong();
+            long expectedSize = HEADER_LENGTH + filmsLength + usersLength + Integer.BYTES;
+            if (channel.size() != expectedSize) {
+                throw new IOException("Снимок " + path + " поврежден: размер " + channel.size()
+                        + " вместо " + expectedSize);
+            }
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, expectedSize - Integer.BYTES,
+                    Integer.BYTES);
+            if (trailer.getInt(0) != MAGIC) {
+                throw new IOException("Снимок " + path + " поврежден: нет завершающей метки.");
+            }
+            SnapshotTable<Film> films = new SnapshotTable<>(
+                    channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, filmsLength),
+                    MappedSnapshot.FILM_INT_COLUMNS, MappedSnapshot.FILM_STRING_COLUMNS, MappedSnapshot::film);
+            SnapshotTable<User> users = new SnapshotTable<>(
+                    channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + filmsLength, usersLength),
+                    MappedSnapshot.USER_INT_COLUMNS, MappedSnapshot.USER_STRING_COLUMNS, MappedSnapshot::user);
+            return new MappedSnapshot(header, films, users);
+        }
+    }
+
+    public void deleteOlderThan(long segment) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> stale = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)
+                        && Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(),
+                        name.length() - SNAPSHOT_SUFFIX.length())) < segment;
+            }).toList();
+            for (Path path : stale) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static <T> List<T> sortedById(Collection<T> rows, ToIntFunction<T> id) {
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingInt(id));
+        return sorted;
+    }
+
+    private static String snapshotName(long segment) {
+        return String.format("%s%019d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX);
+    }
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Колоночная таблица только для чтения поверх отображённого раздела снимка, строки отсортированы по id:
+ *
+ *   count | ids[n] | int columns[k][n] | adjacency offsets[n + 1] | adjacency[m]
+ *         | string starts[s][n] | string lengths[s][n] | UTF-8 heap
+ *
+ * Смежность (лайки или друзья) хранится в формате CSR, поэтому строка находится двоичным поиском по колонке id и
+ * декодируется, не затрагивая другие. Каждую строку можно забрать ровно один раз: хранилище, владеющее таблицей,
+ * забирает строку, когда переносит её в кучу, после этого отображённая копия устарела и читать её нельзя.
+ */
+public final class SnapshotTable<T> {
+
+    static final int NULL_INT = Integer.MIN_VALUE;
+
+    public interface RowMapper<T> {
+        T map(SnapshotTable<T> table, int index);
+    }
+
+    private final ByteBuffer buffer;
+    private final RowMapper<T> mapper;
+    private final int count;
+    private final int intColumnsAt;
+    private final int adjacencyOffsetsAt;
+    private final int adjacencyAt;
+    private final int stringStartsAt;
+    private final int stringLengthsAt;
+    private final int heapAt;
+    private final AtomicLongArray claimed;
+
+    SnapshotTable(ByteBuffer buffer, int intColumns, int stringColumns, RowMapper<T> mapper) {
+        this.buffer = buffer;
+        this.mapper = mapper;
+        count = buffer.getInt(0);
+        intColumnsAt = Integer.BYTES * (1 + count);
+        adjacencyOffsetsAt = intColumnsAt + Integer.BYTES * intColumns * count;
+        adjacencyAt = adjacencyOffsetsAt + Integer.BYTES * (count + 1);
+        stringStartsAt = adjacencyAt + Integer.BYTES * buffer.getInt(adjacencyOffsetsAt + Integer.BYTES * count);
+        stringLengthsAt = stringStartsAt + Integer.BYTES * stringColumns * count;
+        heapAt = stringLengthsAt + Integer.BYTES * stringColumns * count;
+        claimed = new AtomicLongArray((count + 63) >>> 6);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int id(int index) {
+        return buffer.getInt(Integer.BYTES * (1 + index));
+    }
+
+    public int indexOf(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = id(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public T row(int index) {
+        return mapper.map(this, index);
+    }
+
+    public boolean claim(int index) {
+        long bit = 1L << index;
+        long word;
+        do {
+            word = claimed.get(index >>> 6);
+            if ((word & bit) != 0) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(index >>> 6, word, word | bit));
+        return true;
+    }
+
+    Integer integer(int column, int index) {
+        int value = buffer.getInt(intColumnsAt + Integer.BYTES * (column * count + index));
+        return value == NULL_INT ? null : value;
+    }
+
+    LocalDate date(int column, int index) {
+        Integer epochDay = integer(column, index);
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    int[] adjacency(int index) {
+        int from = buffer.getInt(adjacencyOffsetsAt + Integer.BYTES * index);
+        int to = buffer.getInt(adjacencyOffsetsAt + Integer.BYTES * (index + 1));
+        int[] values = new int[to - from];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.getInt(adjacencyAt + Integer.BYTES * (from + i));
+        }
+        return values;
+    }
+
+    String string(int column, int index) {
+        int length = buffer.getInt(stringLengthsAt + Integer.BYTES * (column * count + index));
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(heapAt + buffer.getInt(stringStartsAt + Integer.BYTES * (column * count + index)), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class Writer {
+
+        private final int count;
+        private final int[] ids;
+        private final int[][] intColumns;
+        private final int[] adjacencyOffsets;
+        private final int[][] stringStarts;
+        private final int[][] stringLengths;
+        private final ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        private int[] adjacency = new int[1024];
+        private int row;
+
+        Writer(int count, int intColumns, int stringColumns) {
+            this.count = count;
+            ids = new int[count];
+            this.intColumns = new int[intColumns][count];
+            adjacencyOffsets = new int[count + 1];
+            stringStarts = new int[stringColumns][count];
+            stringLengths = new int[stringColumns][count];
+        }
+
+        void row(int id, int[] ints, int[] neighbours, String... strings) {
+            if (row > 0 && ids[row - 1] >= id) {
+                throw new IllegalArgumentException("Строки снимка должны идти по возрастанию id.");
+            }
+            ids[row] = id;
+            for (int column = 0; column < ints.length; column++) {
+                intColumns[column][row] = ints[column];
+            }
+            int from = adjacencyOffsets[row];
+            if (from + neighbours.length > adjacency.length) {
+                adjacency = Arrays.copyOf(adjacency, Math.max(adjacency.length * 2, from + neighbours.length));
+            }
+            System.arraycopy(neighbours, 0, adjacency, from, neighbours.length);
+            adjacencyOffsets[row + 1] = from + neighbours.length;
+            for (int column = 0; column < strings.length; column++) {
+                stringStarts[column][row] = heap.size();
+                if (strings[column] == null) {
+                    stringLengths[column][row] = -1;
+                } else {
+                    byte[] bytes = strings[column].getBytes(StandardCharsets.UTF_8);
+                    heap.write(bytes, 0, bytes.length);
+                    stringLengths[column][row] = bytes.length;
+                }
+            }
+            row++;
+        }
+
+        long length() {
+            long ints = 1L + count + (long) intColumns.length * count + (count + 1) + adjacencyOffsets[row]
+                    + 2L * stringStarts.length * count;
+            return Integer.BYTES * ints + heap.size();
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            if (row != count) {
+                throw new IllegalStateException("Записано " + row + " строк из " + count + ".");
+            }
+            out.writeInt(count);
+            writeInts(out, ids, count);
+            for (int[] column : intColumns) {
+                writeInts(out, column, count);
+            }
+            writeInts(out, adjacencyOffsets, count + 1);
+            writeInts(out, adjacency, adjacencyOffsets[count]);
+            for (int[] column : stringStarts) {
+                writeInts(out, column, count);
+            }
+            for (int[] column : stringLengths) {
+                writeInts(out, column, count);
+            }
+            out.write(heap.toByteArray());
+        }
+
+        private static void writeInts(DataOutput out, int[] values, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                out.writeInt(values[i]);
+            }
+        }
+
+        static int nullable(Integer value) {
+            return value == null ? NULL_INT : value;
+        }
+
+        static int nullable(LocalDate value) {
+            return value == null ? NULL_INT : Math.toIntExact(value.toEpochDay());
+        }
+    }
+}
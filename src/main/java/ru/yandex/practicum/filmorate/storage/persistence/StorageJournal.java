@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+public interface StorageJournal {
+
+    long NOT_LOGGED = 0L;
+
+    StorageJournal NOOP = new StorageJournal() {
+        @Override
+        public long append(JournalRecord record) {
+            return NOT_LOGGED;
+        }
+
+        @Override
+        public void awaitDurable(long sequence) {
+        }
+    };
+
+    long append(JournalRecord record);
+
+    void awaitDurable(long sequence);
+}
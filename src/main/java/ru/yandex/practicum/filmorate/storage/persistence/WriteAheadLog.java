@@ -0,0 +1,316 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/*
+ * Журнал только на дозапись, разбитый на нумерованные сегменты. Вызывающие кодируют записи в общую пачку в памяти;
+ * единственный поток сброса пишет пачку и делает fsync, так что каждый fsync покрывает все записи, добавленные,
+ * пока выполнялся предыдущий (групповая фиксация). В режиме SYNC awaitDurable() блокируется, пока пачка с записью
+ * не окажется на диске, в режиме ASYNC вызывающий платит только за добавление в память, а fsync идёт в фоне.
+ */
+@Slf4j
+public class WriteAheadLog implements StorageJournal, Closeable {
+
+    public enum Durability {
+        SYNC,
+        ASYNC
+    }
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final Durability durability;
+    private final ReentrantLock channelLock = new ReentrantLock();
+
+    private ByteArrayOutputStream batch = new ByteArrayOutputStream(64 * 1024);
+    private ByteArrayOutputStream spareBatch = new ByteArrayOutputStream(64 * 1024);
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean open;
+    private boolean closed;
+    private IOException failure;
+
+    private FileChannel channel;
+    private long segment;
+    private Thread flusher;
+
+    public WriteAheadLog(Path directory, Durability durability) {
+        this.directory = directory;
+        this.durability = durability;
+    }
+
+    public List<Long> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public long replay(long fromSegment, Consumer<JournalRecord> consumer) throws IOException {
+        long replayed = 0;
+        for (long existing : listSegments()) {
+            if (existing >= fromSegment) {
+                replayed += replaySegment(segmentPath(existing), consumer);
+            }
+        }
+        return replayed;
+    }
+
+    public void open(long firstSegment) throws IOException {
+        Files.createDirectories(directory);
+        channelLock.lock();
+        try {
+            openSegment(firstSegment);
+        } finally {
+            channelLock.unlock();
+        }
+        synchronized (this) {
+            open = true;
+        }
+        flusher = new Thread(this::flushLoop, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public long rotate() throws IOException {
+        channelLock.lock();
+        try {
+            writeBatch();
+            channel.close();
+            openSegment(segment + 1);
+            return segment;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    public void deleteSegmentsBefore(long firstKeptSegment) throws IOException {
+        for (long existing : listSegments()) {
+            if (existing < firstKeptSegment) {
+                Files.deleteIfExists(segmentPath(existing));
+            }
+        }
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(64);
+        try {
+            JournalCodec.encode(record, new DataOutputStream(encoded));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = encoded.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        synchronized (this) {
+            if (!open) {
+                return NOT_LOGGED;
+            }
+            if (closed) {
+                // поток сброса уже остановлен: запись потерялась бы, а клиент получил бы ответ об успехе
+                throw new IllegalStateException("Журнал изменений закрыт.");
+            }
+            checkFailure();
+            writeInt(batch, payload.length);
+            writeInt(batch, (int) crc.getValue());
+            batch.write(payload, 0, payload.length);
+            appendedSequence++;
+            notifyAll();
+            return appendedSequence;
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        if (sequence == NOT_LOGGED || durability == Durability.ASYNC) {
+            return;
+        }
+        synchronized (this) {
+            while (durableSequence < sequence) {
+                checkFailure();
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Ожидание записи журнала прервано.", e);
+                }
+            }
+        }
+    }
+
+    /*
+     * Записи, добавленные до закрытия, сбрасываются последней пачкой. После неё ожидающие в awaitDurable
+     * просыпаются с ошибкой, если их запись так и не попала на диск.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (!open || closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channelLock.lock();
+        try {
+            writeBatch();
+            channel.close();
+        } finally {
+            channelLock.unlock();
+            synchronized (this) {
+                if (failure == null) {
+                    failure = new IOException("Журнал изменений закрыт.");
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (this) {
+                while (batch.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            channelLock.lock();
+            try {
+                writeBatch();
+            } catch (IOException e) {
+                log.error("Ошибка записи журнала изменений.", e);
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            } finally {
+                channelLock.unlock();
+            }
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        ByteArrayOutputStream toWrite;
+        long batchSequence;
+        synchronized (this) {
+            if (batch.size() == 0) {
+                return;
+            }
+            toWrite = batch;
+            batch = spareBatch;
+            spareBatch = toWrite;
+            batchSequence = appendedSequence;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(toWrite.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        toWrite.reset();
+        synchronized (this) {
+            durableSequence = batchSequence;
+            notifyAll();
+        }
+    }
+
+    private void openSegment(long newSegment) throws IOException {
+        segment = newSegment;
+        channel = FileChannel.open(segmentPath(newSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long segmentNumber) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал изменений недоступен.", failure);
+        }
+    }
+
+    private static long replaySegment(Path path, Consumer<JournalRecord> consumer) throws IOException {
+        long replayed = 0;
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 64 * 1024))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    int expectedCrc = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                        throw new IOException("Некорректная длина записи: " + length);
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32C crc = new CRC32C();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        throw new IOException("Не совпала контрольная сумма записи.");
+                    }
+                    consumer.accept(JournalCodec.decode(new DataInputStream(new ByteArrayInputStream(payload))));
+                    replayed++;
+                } catch (IOException e) {
+                    log.warn("Сегмент журнала {} обрезан после {} записей: {}", path, replayed, e.getMessage());
+                    break;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
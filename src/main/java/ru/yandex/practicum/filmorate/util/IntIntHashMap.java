@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.util;
+
+/*
+ * Отображение int -> int с открытой адресацией для подсчётов по большим диапазонам id без упаковки.
+ * Не потокобезопасно, рассчитано на использование как локальный накопитель.
+ */
+public class IntIntHashMap {
+
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private boolean hasEmptyKey;
+    private int emptyKeyValue;
+
+    public IntIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    public int get(int key, int defaultValue) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : defaultValue;
+        }
+        int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public void put(int key, int value) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return;
+        }
+        int index = slotFor(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            values[index] = value;
+            afterInsert();
+        } else {
+            values[index] = value;
+        }
+    }
+
+    public int addTo(int key, int delta) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue += delta;
+            return emptyKeyValue;
+        }
+        int index = slotFor(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            values[index] = delta;
+            afterInsert();
+            return delta;
+        }
+        values[index] += delta;
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasEmptyKey) {
+            consumer.accept(EMPTY, emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slotFor(int key) {
+        int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void afterInsert() {
+        size++;
+        if (size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexFor(oldKeys[i], mask);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int indexFor(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+}
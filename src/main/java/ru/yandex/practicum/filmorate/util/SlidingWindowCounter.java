@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Кольцо временных корзин. Каждая ячейка упаковывает (номер корзины << 32 | счётчик) в один long, поэтому
+ * писатель, попавший в новую корзину, сбрасывает устаревшую ячейку и добавляет своё приращение одним CAS:
+ * без блокировок и без потерянных приращений на смене корзины. Счётчики знаковые: снятие старого лайка
+ * попадает в текущую корзину как -1.
+ */
+public class SlidingWindowCounter {
+
+    private final AtomicLongArray slots;
+
+    public SlidingWindowCounter(int buckets) {
+        slots = new AtomicLongArray(buckets);
+    }
+
+    public void add(int bucket, int delta) {
+        int index = Math.floorMod(bucket, slots.length());
+        while (true) {
+            long current = slots.get(index);
+            int slotBucket = (int) (current >>> 32);
+            long updated;
+            if (slotBucket == bucket) {
+                updated = pack(bucket, (int) current + delta);
+            } else if (slotBucket - bucket < 0) {
+                updated = pack(bucket, delta);
+            } else {
+                return;
+            }
+            if (slots.compareAndSet(index, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /* Сумма корзин из (currentBucket - length, currentBucket]. */
+    public int sum(int currentBucket) {
+        int total = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            long slot = slots.get(i);
+            int age = currentBucket - (int) (slot >>> 32);
+            if (age >= 0 && age < slots.length()) {
+                total += (int) slot;
+            }
+        }
+        return total;
+    }
+
+    private static long pack(int bucket, int count) {
+        return ((long) bucket << 32) | (count & 0xFFFFFFFFL);
+    }
+}
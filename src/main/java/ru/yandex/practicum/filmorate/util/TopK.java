@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+/*
+ * Хранит k лучших пар (id, счёт) в двоичной min-куче упакованных long: O(n log k) вместо сортировки всех
+ * n кандидатов. Побеждает больший счёт, при равенстве — меньший id.
+ */
+public class TopK {
+
+    private final long[] heap;
+    private int size;
+
+    public TopK(int k) {
+        heap = new long[Math.max(k, 0)];
+    }
+
+    public void offer(int id, int score) {
+        if (heap.length == 0) {
+            return;
+        }
+        long entry = pack(id, score);
+        if (size < heap.length) {
+            heap[size] = entry;
+            siftUp(size++);
+        } else if (entry > heap[0]) {
+            heap[0] = entry;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] idsByScoreDescending() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = Integer.MAX_VALUE - (int) sorted[size - 1 - i];
+        }
+        return ids;
+    }
+
+    private static long pack(int id, int score) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    private void siftUp(int index) {
+        long entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+
+    private void siftDown(int index) {
+        long entry = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (entry <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = entry;
+    }
+}
@@ -0,0 +1,44 @@
+CREATE TABLE IF NOT EXISTS users (
+    id       INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE,
+    version  BIGINT NOT NULL DEFAULT 1,
+    email_key VARCHAR(255) GENERATED ALWAYS AS (LOWER(email))
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_key_uq ON users (email_key);
+CREATE UNIQUE INDEX IF NOT EXISTS users_login_uq ON users (login);
+
+CREATE TABLE IF NOT EXISTS films (
+    id           INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     INTEGER,
+    like_count   INTEGER NOT NULL DEFAULT 0,
+    version      BIGINT NOT NULL DEFAULT 1
+);
+
+CREATE INDEX IF NOT EXISTS films_like_count_idx ON films (like_count DESC, id);
+
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration);
+
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS film_likes_user_id_idx ON film_likes (user_id);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_id_idx ON friendships (friend_id);
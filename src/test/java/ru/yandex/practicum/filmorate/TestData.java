@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/* Фильмы и пользователи для тестов хранилищ; даты сдвигаются на index дней, так что подходит любой index. */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static Film film(int index) {
+        return Film.builder()
+                .name("Фильм " + index)
+                .description("Описание " + index)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(index))
+                .duration(90)
+                .build();
+    }
+
+    public static User user(int index) {
+        return User.builder()
+                .email("user" + index + "@mail.ru")
+                .login("user" + index)
+                .name("Пользователь " + index)
+                .birthday(LocalDate.of(1990, 1, 1).plusDays(index))
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class BatchEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void appliesBatchesAndReportsEveryItem() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .contentType(NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+                        .content("""
+                                {"email":"first@mail.ru","login":"first","birthday":"1990-01-01"}
+                                {"email":"second@mail.ru","login":"second","birthday":"1990-01-02"}
+                                {"email":"wrong","login":"third"}
+                                not json
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(jsonPath("$[2].status").value(400))
+                .andExpect(jsonPath("$[3].status").value(400));
+
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"name":"Фильм","description":"Описание","releaseDate":"2000-01-01","duration":90},
+                                 {"name":"","description":"Описание","releaseDate":"2000-01-01","duration":90},
+                                 {"name":"Старый","description":"Описание","releaseDate":"1800-01-01","duration":90}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[2].error").value("Некорректная дата релиза фильма."));
+
+        mockMvc.perform(put("/films/likes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"filmId":1,"userId":1},{"filmId":1,"userId":2},{"filmId":5,"userId":1},{"filmId":1}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(200))
+                .andExpect(jsonPath("$[2].status").value(404))
+                .andExpect(jsonPath("$[3].status").value(400));
+
+        mockMvc.perform(put("/users/friends/batch")
+                        .contentType(NdjsonStreamer.APPLICATION_NDJSON_VALUE)
+                        .content("""
+                                {"userId":1,"friendId":2}
+                                {"userId":1,"friendId":7}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(404));
+
+        mockMvc.perform(get("/films/1"))
+                .andExpect(jsonPath("$.likes.length()").value(2));
+        mockMvc.perform(get("/users/2/friends"))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class ConditionalRequestsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void answersNotModifiedUntilEntityChangesAndRejectsStaleUpdates() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"email":"a@mail.ru","login":"a","birthday":"1990-01-01"},
+                                 {"email":"b@mail.ru","login":"b","birthday":"1990-01-01"}]
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"Фильм","description":"Описание","releaseDate":"2000-01-01","duration":90}
+                                """))
+                .andExpect(status().isOk());
+
+        String filmTag = etag("/films/1");
+        String popularTag = etag("/films/popular");
+        String friendsTag = etag("/users/1/friends");
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/users/1/friends").header(HttpHeaders.IF_NONE_MATCH, friendsTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/films/1/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/1/friends/2")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes.length()").value(1));
+        mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likeCount").value(1));
+        mockMvc.perform(get("/users/1/friends").header(HttpHeaders.IF_NONE_MATCH, friendsTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2));
+        assertThat(etag("/films/popular?view=full")).isNotEqualTo(etag("/films/popular"));
+
+        mockMvc.perform(put("/films")
+                        .header(HttpHeaders.IF_MATCH, filmTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"name\":\"Другое\",\"description\":\"Описание\",\"duration\":90}"))
+                .andExpect(status().isPreconditionFailed());
+        String currentTag = etag("/films/1");
+        String updatedTag = mockMvc.perform(put("/films")
+                        .header(HttpHeaders.IF_MATCH, currentTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"name\":\"Другое\",\"description\":\"Описание\",\"duration\":90}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Другое"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updatedTag).isEqualTo(etag("/films/1")).isNotEqualTo(currentTag);
+
+        mockMvc.perform(put("/users")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":2,\"email\":\"b@mail.ru\",\"login\":\"bb\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/users")
+                        .header(HttpHeaders.IF_MATCH, etag("/users/2"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":2,\"email\":\"b@mail.ru\",\"login\":\"bb\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    private String etag(String uri) throws Exception {
+        return mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
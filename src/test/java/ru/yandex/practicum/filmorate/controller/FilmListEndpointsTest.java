@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.event.MutationEventBus;
+import ru.yandex.practicum.filmorate.service.TrendingService;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class FilmListEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private MutationEventBus eventBus;
+
+    @Test
+    void listsSummariesByDefaultAndPagesLikes() throws Exception {
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"email":"a@mail.ru","login":"a","birthday":"1990-01-01"},
+                                 {"email":"b@mail.ru","login":"b","birthday":"1990-01-01"},
+                                 {"email":"c@mail.ru","login":"c","birthday":"1990-01-01"}]
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"Фильм","description":"Описание","releaseDate":"2000-01-01","duration":90}
+                                """))
+                .andExpect(status().isOk());
+        for (int userId = 1; userId <= 3; userId++) {
+            mockMvc.perform(put("/films/1/like/" + userId)).andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likeCount").value(3))
+                .andExpect(jsonPath("$[0].likes").doesNotExist())
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+        eventBus.flush();
+        trendingService.refresh();
+        mockMvc.perform(get("/films/trending").param("window", "1h"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].likeCount").value(3));
+        mockMvc.perform(get("/films/trending").param("window", "2h"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search").param("q", "фильм опис"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+        mockMvc.perform(get("/films/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("view", "full"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likes.length()").value(3));
+        mockMvc.perform(get("/films").param("releasedFrom", "1999-12-31").param("maxDuration", "90"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+        mockMvc.perform(get("/films").param("minDuration", "91"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/films").param("releasedFrom", "2001-01-01").param("releasedTo", "2000-01-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("view", "compact"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/films/1/likes").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(FilmController.NEXT_CURSOR_HEADER, "2"))
+                .andExpect(jsonPath("$").value(contains(1, 2)));
+        mockMvc.perform(get("/films/1/likes").param("cursor", "2").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(FilmController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$").value(contains(3)));
+        mockMvc.perform(get("/films/42/likes"))
+                .andExpect(status().isNotFound());
+    }
+}
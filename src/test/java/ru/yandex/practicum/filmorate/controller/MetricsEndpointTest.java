@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@DirtiesContext
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void exportsRequestTimersAndDomainCounters() throws Exception {
+        for (String login : new String[]{"first", "second"}) {
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"email\":\"" + login + "@mail.ru\",\"login\":\"" + login
+                                    + "\",\"birthday\":\"1990-01-01\"}"))
+                    .andExpect(status().isCreated());
+        }
+        mockMvc.perform(put("/users/1/friends/2")).andExpect(status().isOk());
+        mockMvc.perform(get("/users/42")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "http_server_requests_seconds_bucket{error=\"none\",exception=\"none\",method=\"PUT\","
+                                + "outcome=\"SUCCESS\",status=\"200\",uri=\"/users/{id}/friends/{friendId}\"")))
+                .andExpect(content().string(containsString(
+                        "filmorate_friendships_total{action=\"added\",} 1.0")))
+                .andExpect(content().string(containsString(
+                        "filmorate_errors_total{type=\"not_found\",} 1.0")))
+                .andExpect(content().string(containsString("filmorate_storage_users 2.0")))
+                .andExpect(content().string(containsString("filmorate_storage_friendships 1.0")));
+    }
+}
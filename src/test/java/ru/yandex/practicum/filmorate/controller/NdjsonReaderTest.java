@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NdjsonReaderTest {
+
+    @Test
+    void stopsReadingAfterMaxItems() throws Exception {
+        NdjsonReader reader = new NdjsonReader(new ObjectMapper(), 3);
+        List<Integer> applied = new ArrayList<>();
+        String body = """
+                1
+                2
+
+                3
+                4
+                5
+                """;
+
+        List<BatchItemResult> results = reader.read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                Integer.class, (chunk, firstIndex) -> {
+                    List<BatchItemResult> chunkResults = new ArrayList<>(chunk.size());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        applied.add(chunk.get(i));
+                        chunkResults.add(BatchItemResult.ok(firstIndex + i, chunk.get(i)));
+                    }
+                    return chunkResults;
+                });
+
+        assertThat(applied).containsExactly(1, 2, 3);
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(200, 200, 200, 413);
+        assertThat(results.getLast().getIndex()).isEqualTo(3);
+    }
+}
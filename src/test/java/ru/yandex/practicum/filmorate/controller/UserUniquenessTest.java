@@ -0,0 +1,114 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class UserUniquenessTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void rejectsEmailThatDiffersOnlyInCase() throws Exception {
+        createUser("case@mail.ru", "case");
+
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"CASE@Mail.ru\",\"login\":\"other-case\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/users/by-email").param("email", "Case@MAIL.ru"))
+                .andExpect(jsonPath("$.login").value("case"));
+        mockMvc.perform(get("/users/by-login/other-case"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void rejectsTakenLoginOnUpdate() throws Exception {
+        createUser("taken@mail.ru", "taken");
+        int id = createUser("owner@mail.ru", "owner");
+
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":" + id + ",\"email\":\"owner@mail.ru\",\"login\":\"taken\","
+                                + "\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/users/" + id))
+                .andExpect(jsonPath("$.login").value("owner"));
+        mockMvc.perform(get("/users/by-login/owner"))
+                .andExpect(jsonPath("$.id").value(id));
+    }
+
+    @Test
+    void reportsConflictsPerItemInBatch() throws Exception {
+        createUser("batch@mail.ru", "batch");
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"email":"BATCH@mail.ru","login":"batch-other","birthday":"1990-01-01"},
+                                 {"email":"fourth@mail.ru","login":"fourth","birthday":"1990-01-01"},
+                                 {"email":"fifth@mail.ru","login":"fourth","birthday":"1990-01-01"}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(409))
+                .andExpect(jsonPath("$[1].status").value(200))
+                .andExpect(jsonPath("$[2].status").value(409));
+        mockMvc.perform(get("/users/by-login/fourth"))
+                .andExpect(jsonPath("$.email").value("fourth@mail.ru"));
+        mockMvc.perform(get("/users/by-login/batch-other"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/by-email").param("email", "fifth@mail.ru"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void keepsIdsContiguousWhenBatchHasOneDuplicateEmail() throws Exception {
+        int taken = createUser("duplicate@mail.ru", "duplicate");
+
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"email":"sixth@mail.ru","login":"sixth","birthday":"1990-01-01"},
+                                 {"email":"Duplicate@mail.ru","login":"seventh","birthday":"1990-01-01"},
+                                 {"email":"eighth@mail.ru","login":"eighth","birthday":"1990-01-01"}]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(taken + 1))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[1].id").doesNotExist())
+                .andExpect(jsonPath("$[2].id").value(taken + 2));
+        mockMvc.perform(get("/users/by-login/eighth"))
+                .andExpect(jsonPath("$.id").value(taken + 2));
+        mockMvc.perform(get("/users/by-login/seventh"))
+                .andExpect(status().isNotFound());
+        assertThat(createUser("ninth@mail.ru", "ninth")).isEqualTo(taken + 3);
+    }
+
+    private int createUser(String email, String login) throws Exception {
+        String response = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"login\":\"" + login
+                                + "\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return JsonPath.read(response, "$.id");
+    }
+}
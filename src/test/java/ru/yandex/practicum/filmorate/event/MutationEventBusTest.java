@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MutationEventBusTest {
+
+    private static final int PARTITIONS = 4;
+
+    @Test
+    void deliversEventsOfOnePartitionInOrderAndInBatches() {
+        List<List<MutationEvent>> batches = new CopyOnWriteArrayList<>();
+        MutationEventBus eventBus = bus(events -> batches.add(List.copyOf(events)), 1024,
+                MutationEventBus.Backpressure.BLOCK, MutationEventBus.Durability.ASYNC, new SimpleMeterRegistry());
+        try {
+            for (int userId = 0; userId < 1_000; userId++) {
+                for (int filmId = 1; filmId <= 8; filmId++) {
+                    eventBus.publish(new MutationEvent.LikeAdded(filmId, userId));
+                }
+            }
+            eventBus.flush();
+        } finally {
+            eventBus.close();
+        }
+
+        List<List<Integer>> usersByFilm = new ArrayList<>();
+        for (int filmId = 0; filmId <= 8; filmId++) {
+            usersByFilm.add(new ArrayList<>());
+        }
+        for (List<MutationEvent> batch : batches) {
+            int partition = Math.floorMod(batch.getFirst().partitionKey(), PARTITIONS);
+            for (MutationEvent event : batch) {
+                assertThat(Math.floorMod(event.partitionKey(), PARTITIONS)).isEqualTo(partition);
+                MutationEvent.LikeAdded like = (MutationEvent.LikeAdded) event;
+                usersByFilm.get(like.filmId()).add(like.userId());
+            }
+        }
+        for (int filmId = 1; filmId <= 8; filmId++) {
+            assertThat(usersByFilm.get(filmId)).hasSize(1_000).isSorted();
+        }
+        assertThat(batches.size()).isLessThan(8_000);
+    }
+
+    @Test
+    void syncPublishReturnsAfterListenersHandledTheEvent() {
+        List<MutationEvent> handled = new CopyOnWriteArrayList<>();
+        MutationEventBus eventBus = bus(handled::addAll, 16, MutationEventBus.Backpressure.BLOCK,
+                MutationEventBus.Durability.SYNC, new SimpleMeterRegistry());
+        try {
+            eventBus.publish(new MutationEvent.FriendAdded(7, 3));
+            assertThat(handled).containsExactly(new MutationEvent.FriendAdded(7, 3));
+            eventBus.publish(new MutationEvent.FriendRemoved(3, 7));
+            assertThat(handled).hasSize(2);
+        } finally {
+            eventBus.close();
+        }
+    }
+
+    @Test
+    void dropsEventsWhenPartitionIsFull() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<MutationEvent> handled = new CopyOnWriteArrayList<>();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MutationEventBus eventBus = bus(events -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.addAll(events);
+        }, 2, MutationEventBus.Backpressure.DROP, MutationEventBus.Durability.ASYNC, registry);
+        try {
+            eventBus.publish(new MutationEvent.LikeAdded(4, 1));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            eventBus.publish(new MutationEvent.LikeAdded(4, 2));
+            eventBus.publish(new MutationEvent.LikeAdded(4, 3));
+            eventBus.publish(new MutationEvent.LikeAdded(4, 4));
+            assertThat(registry.counter("filmorate.events.dropped").count()).isEqualTo(1);
+            assertThat(eventBus.getQueuedCount()).isEqualTo(2);
+
+            release.countDown();
+            eventBus.flush();
+            assertThat(handled).extracting(event -> ((MutationEvent.LikeAdded) event).userId())
+                    .containsExactly(1, 2, 3);
+        } finally {
+            release.countDown();
+            eventBus.close();
+        }
+    }
+
+    private static MutationEventBus bus(MutationEventListener listener, int capacity,
+                                        MutationEventBus.Backpressure backpressure,
+                                        MutationEventBus.Durability durability, SimpleMeterRegistry registry) {
+        return new MutationEventBus(List.of(listener), PARTITIONS, capacity, 64, backpressure, durability, registry);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.MutationEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchServiceTest {
+
+    private InMemoryFilmStorage filmStorage;
+    private FilmSearchService filmSearchService;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        filmStorage.createFilm(film("Ёлки", "Новогодняя комедия"));
+        filmStorage.createFilm(film("Иван Васильевич меняет профессию", "Комедия о машине времени"));
+        filmStorage.createFilm(film("Машина времени", "Экранизация романа Уэллса"));
+        filmStorage.createFilm(film("Операция «Ы»", "Комедия Гайдая"));
+        filmSearchService = new FilmSearchService(filmStorage, 10, 256);
+        filmSearchService.rebuild();
+    }
+
+    @Test
+    void matchesAllWordsWithPrefixOfTheLastOne() {
+        assertThat(filmSearchService.search("ЕЛКИ", 10, true)).containsExactly(1);
+        assertThat(filmSearchService.search("времени маш", 10, true)).containsExactly(3, 2);
+        assertThat(filmSearchService.search("комедия гай", 10, true)).containsExactly(4);
+        assertThat(filmSearchService.search("ы", 10, true)).isEmpty();
+    }
+
+    @Test
+    void boostsEqualMatchesByLikesAndFollowsUpdates() {
+        assertThat(filmSearchService.search("комедия", 10, true)).containsExactly(1, 2, 4);
+        filmSearchService.onEvents(List.of(new MutationEvent.LikeAdded(4, 1), new MutationEvent.LikeAdded(4, 2),
+                new MutationEvent.LikeAdded(2, 1)));
+        assertThat(filmSearchService.search("комедия", 10, true)).containsExactly(4, 2, 1);
+        assertThat(filmSearchService.search("комедия", 10, false)).containsExactly(1, 2, 4);
+
+        Film stored = filmStorage.getFilmById(1);
+        Film updated = filmStorage.updateFilm(stored.toBuilder().description("Мелодрама").build());
+        filmSearchService.index(updated);
+        filmSearchService.remove(4);
+        assertThat(filmSearchService.search("комедия", 10, true)).containsExactly(2);
+        assertThat(filmSearchService.search("мелод", 10, true)).containsExactly(1);
+    }
+
+    @Test
+    void ignoresStaleVersionsAndFilmsIndexedAfterRemoval() {
+        Film first = filmStorage.updateFilm(filmStorage.getFilmById(1).toBuilder().name("Пальмы").build());
+        Film second = filmStorage.updateFilm(first.toBuilder().name("Сосны").build());
+        filmSearchService.index(second);
+        filmSearchService.index(first);
+        assertThat(filmSearchService.search("сосны", 10, true)).containsExactly(1);
+        assertThat(filmSearchService.search("пальмы", 10, true)).isEmpty();
+        assertThat(filmSearchService.search("елки", 10, true)).isEmpty();
+
+        Film renamed = filmStorage.updateFilm(filmStorage.getFilmById(3).toBuilder().name("Кин-дза-дза").build());
+        filmSearchService.remove(3);
+        filmSearchService.index(renamed);
+        assertThat(filmSearchService.search("кин", 10, true)).isEmpty();
+        assertThat(filmSearchService.search("машина", 10, true)).isEmpty();
+    }
+
+    private static Film film(String name, String description) {
+        return Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecommendationServiceTest {
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private RecommendationService recommendationService;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 7; i++) {
+            userStorage.createUser(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("user" + i)
+                    .name("user" + i)
+                    .birthday(LocalDate.of(1990, 1, i))
+                    .build());
+        }
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 1; i <= 6; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("film" + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2000, 1, i))
+                    .duration(100)
+                    .build());
+        }
+        recommendationService = new RecommendationService(userStorage, filmStorage, 1000, 10, 2);
+    }
+
+    @Test
+    void ranksSecondDegreeConnectionsByMutualFriends() {
+        userStorage.addFriend(1, 2);
+        userStorage.addFriend(1, 3);
+        userStorage.addFriend(2, 3);
+        userStorage.addFriend(2, 4);
+        userStorage.addFriend(3, 4);
+        userStorage.addFriend(2, 5);
+        userStorage.addFriend(3, 6);
+        userStorage.addFriend(4, 7);
+
+        assertThat(recommendationService.getFriendRecommendations(1, 10))
+                .extracting(User::getId)
+                .containsExactly(4, 5, 6);
+        assertThat(recommendationService.getFriendRecommendations(1, 2))
+                .extracting(User::getId)
+                .containsExactly(4, 5);
+    }
+
+    @Test
+    void recommendsFilmsLikedByUsersWithOverlappingLikes() {
+        like(1, 1, 2, 3);
+        like(2, 1, 2, 3, 4, 5);
+        like(3, 1, 6);
+        like(4, 5);
+
+        assertThat(recommendationService.getFilmRecommendations(1, 10))
+                .extracting(Film::getId)
+                .containsExactly(4, 5, 6);
+        assertThat(recommendationService.getFilmRecommendations(4, 10))
+                .extracting(Film::getId)
+                .containsExactly(1, 2, 3, 4);
+        assertThat(recommendationService.getFilmRecommendations(5, 10)).isEmpty();
+
+        filmStorage.deleteFilmById(4);
+        assertThat(recommendationService.getFilmRecommendations(1, 10))
+                .extracting(Film::getId)
+                .containsExactly(5, 6);
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            filmStorage.addLike(filmId, userId);
+        }
+    }
+}
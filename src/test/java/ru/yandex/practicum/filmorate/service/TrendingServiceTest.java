@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrendingServiceTest {
+
+    private MutableClock clock;
+    private TrendingService trendingService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-05-01T12:00:00Z"));
+        trendingService = new TrendingService(3, clock);
+    }
+
+    @Test
+    void ranksFilmsByLikesInsideEachWindow() {
+        like(1, 5);
+        clock.advance(Duration.ofHours(2));
+        like(2, 3);
+        like(3, 1);
+        trendingService.recordUnlike(3);
+        trendingService.refresh();
+
+        assertThat(trendingService.getTrending(TrendingWindow.HOUR, 3)).containsExactly(2);
+        assertThat(trendingService.getTrending(TrendingWindow.DAY, 3)).containsExactly(1, 2);
+        assertThat(trendingService.getTrending(TrendingWindow.DAY, 1)).containsExactly(1);
+
+        clock.advance(Duration.ofDays(1));
+        like(3, 1);
+        trendingService.refresh();
+
+        assertThat(trendingService.getTrending(TrendingWindow.DAY, 3)).containsExactly(3);
+        assertThat(trendingService.getTrending(TrendingWindow.WEEK, 3)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void dropsFilmsIdleForLongerThanAWeek() {
+        like(1, 2);
+        clock.advance(Duration.ofDays(8));
+        trendingService.refresh();
+        trendingService.recordUnlike(1);
+        like(2, 1);
+        trendingService.refresh();
+
+        assertThat(trendingService.getTrending(TrendingWindow.WEEK, 3)).containsExactly(2);
+        assertThatThrownBy(() -> trendingService.getTrending(TrendingWindow.WEEK, 4))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void ignoresLikesDeliveredAfterFilmIsForgotten() {
+        like(1, 3);
+        like(2, 1);
+        trendingService.forget(1);
+        like(1, 2);
+        trendingService.refresh();
+
+        assertThat(trendingService.getTrending(TrendingWindow.HOUR, 3)).containsExactly(2);
+        assertThat(trendingService.getTrending(TrendingWindow.WEEK, 3)).containsExactly(2);
+    }
+
+    private void like(int filmId, int times) {
+        for (int i = 0; i < times; i++) {
+            trendingService.recordLike(filmId);
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.film;
+
+@SpringBootTest(properties = "filmorate.storage.cache.enabled=true")
+class CachingStorageTest {
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Test
+    void storagesAreWrappedAndInvalidatedOnWrites() {
+        assertThat(filmStorage).isInstanceOf(CachingFilmStorage.class);
+        assertThat(userStorage).isInstanceOf(CachingUserStorage.class);
+        CachingFilmStorage cachingFilmStorage = (CachingFilmStorage) filmStorage;
+        CachingUserStorage cachingUserStorage = (CachingUserStorage) userStorage;
+
+        Film film = filmStorage.createFilm(Film.builder()
+                .name("name")
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build());
+        User user = userStorage.createUser(User.builder()
+                .email("user@mail.ru")
+                .login("user")
+                .name("user")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        filmStorage.getFilmById(film.getId());
+        filmStorage.getFilmById(film.getId());
+        assertThat(cachingFilmStorage.getStats().hitCount()).isEqualTo(1);
+
+        filmStorage.addLike(film.getId(), user.getId());
+        assertThat(cachingFilmStorage.getCache().getIfPresent(film.getId())).isNull();
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes()).containsExactly(user.getId());
+
+        User friend = userStorage.createUser(user.toBuilder()
+                .id(null)
+                .email("friend@mail.ru")
+                .login("friend")
+                .build());
+        userStorage.addFriend(user.getId(), friend.getId());
+        long friendVersion = userStorage.getUserById(friend.getId()).getVersion();
+        assertThat(cachingUserStorage.getCache().getIfPresent(friend.getId())).isNotNull();
+        assertThat(filmStorage.getFilmById(film.getId())).isNotNull();
+        userStorage.deleteUserById(user.getId());
+        assertThat(cachingUserStorage.getCache().getIfPresent(friend.getId())).isNull();
+        assertThat(cachingFilmStorage.getCache().getIfPresent(film.getId())).isNull();
+        assertThat(userStorage.getUserById(friend.getId()).getVersion()).isGreaterThan(friendVersion);
+
+        filmStorage.deleteFilmById(film.getId());
+        assertThat(filmStorage.getFilmById(film.getId())).isNull();
+        assertThat(userStorage.getUsersByIds(new int[]{friend.getId(), 1000})).extracting(User::getId)
+                .containsExactly(friend.getId());
+    }
+
+    @Test
+    void bulkReadRacingAnUpdateDoesNotCacheTheOldVersion() {
+        AtomicReference<Runnable> onBulkRead = new AtomicReference<>();
+        InMemoryFilmStorage delegate = new InMemoryFilmStorage() {
+            @Override
+            public List<Film> getFilmsByIds(int[] ids) {
+                List<Film> films = super.getFilmsByIds(ids);
+                Runnable race = onBulkRead.getAndSet(null);
+                if (race != null) {
+                    race.run();
+                }
+                return films;
+            }
+        };
+        CachingFilmStorage cachingStorage = new CachingFilmStorage(delegate, 100);
+        Film film = cachingStorage.createFilm(film(1));
+        Film other = cachingStorage.createFilm(film(2));
+        cachingStorage.getFilmById(other.getId());
+
+        onBulkRead.set(() -> cachingStorage.updateFilm(film.toBuilder().name("Новое название").build()));
+        assertThat(cachingStorage.getFilmsByIds(new int[]{film.getId(), other.getId()}))
+                .extracting(Film::getId)
+                .containsExactly(film.getId(), other.getId());
+
+        assertThat(cachingStorage.getFilmById(film.getId()).getName()).isEqualTo("Новое название");
+        assertThat(cachingStorage.getFilmsByIds(new int[]{film.getId()})).extracting(Film::getName)
+                .containsExactly("Новое название");
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class FilmPopularityIndexTest {
+
+    @Test
+    void ordersByLikesDescendingThenById() {
+        FilmPopularityIndex index = new FilmPopularityIndex();
+        index.update(3, 5);
+        index.update(1, 2);
+        index.update(2, 5);
+        index.update(4, 0);
+
+        assertThat(index.top(10)).containsExactly(2, 3, 1, 4);
+        assertThat(index.top(2)).containsExactly(2, 3);
+        assertThat(index.top(0)).isEmpty();
+
+        index.update(1, 6);
+        index.update(2, 4);
+        assertThat(index.top(10)).containsExactly(1, 3, 2, 4);
+
+        index.remove(3);
+        index.remove(42);
+        assertThat(index.top(10)).containsExactly(1, 2, 4);
+    }
+
+    @Test
+    void storageRepositionsFilmsOnLikeUnlikeAndDelete() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        User first = userStorage.createUser(user(1));
+        User second = userStorage.createUser(user(2));
+        Film older = filmStorage.createFilm(film(1));
+        Film newer = filmStorage.createFilm(film(2));
+
+        assertThat(filmStorage.getPopularFilms(10)).extracting(Film::getId)
+                .containsExactly(older.getId(), newer.getId());
+
+        filmStorage.addLike(newer.getId(), first.getId());
+        filmStorage.addLike(newer.getId(), second.getId());
+        filmStorage.addLike(older.getId(), first.getId());
+        assertThat(filmStorage.getPopularFilms(10)).extracting(Film::getId)
+                .containsExactly(newer.getId(), older.getId());
+
+        filmStorage.deleteLike(newer.getId(), second.getId());
+        assertThat(filmStorage.getPopularFilms(10)).extracting(Film::getId)
+                .containsExactly(older.getId(), newer.getId());
+
+        filmStorage.deleteFilmById(older.getId());
+        assertThat(filmStorage.getPopularFilms(10)).extracting(Film::getId)
+                .containsExactly(newer.getId());
+    }
+}
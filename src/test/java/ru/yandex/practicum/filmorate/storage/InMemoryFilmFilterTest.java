@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryFilmFilterTest {
+
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 1; i <= 10; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("film" + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2000 + i, 1, 1))
+                    .duration(80 + 10 * (i % 3))
+                    .build());
+        }
+    }
+
+    @Test
+    void intersectsReleaseDateAndDurationRanges() {
+        FilmFilter filter = new FilmFilter(LocalDate.of(2002, 1, 1), LocalDate.of(2008, 1, 1), 90, null);
+
+        assertThat(filmStorage.getFilmsByFilter(filter, null, 10)).extracting(Film::getId)
+                .containsExactly(2, 4, 5, 7, 8);
+        assertThat(filmStorage.getFilmsByFilter(filter, 4, 2)).extracting(Film::getId)
+                .containsExactly(5, 7);
+        assertThat(filmStorage.getFilmsByFilter(new FilmFilter(null, LocalDate.of(2003, 6, 1), null, null), null, 10))
+                .extracting(Film::getId)
+                .containsExactly(1, 2, 3);
+        assertThat(filmStorage.getFilmsByFilter(new FilmFilter(null, null, 81, 89), null, 10)).isEmpty();
+    }
+
+    @Test
+    void followsUpdatedAndDeletedFilms() {
+        Film film = filmStorage.getFilmById(3).toBuilder()
+                .releaseDate(LocalDate.of(1990, 1, 1))
+                .duration(200)
+                .build();
+        filmStorage.updateFilm(film);
+        filmStorage.deleteFilmById(6);
+
+        assertThat(filmStorage.getFilmsByFilter(new FilmFilter(null, LocalDate.of(1999, 1, 1), 150, null), null, 10))
+                .extracting(Film::getId)
+                .containsExactly(3);
+        assertThat(filmStorage.getFilmsByFilter(new FilmFilter(null, null, 80, 80), null, 10))
+                .extracting(Film::getId)
+                .containsExactly(9);
+    }
+}
@@ -0,0 +1,316 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class InMemoryStorageConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int USERS = 2_000;
+    private static final int FILMS = 50;
+
+    @Test
+    void concurrentLikesAreNotLost() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            filmIds.add(filmStorage.createFilm(film(i)).getId());
+        }
+
+        runConcurrently(thread -> {
+            for (int userId = thread; userId < USERS; userId += THREADS) {
+                for (Integer filmId : filmIds) {
+                    filmStorage.addLike(filmId, userId);
+                    filmStorage.addLike(filmId, userId);
+                }
+            }
+        });
+
+        for (Integer filmId : filmIds) {
+            assertThat(filmStorage.getFilmById(filmId).getLikes()).hasSize(USERS);
+        }
+        assertThat(filmStorage.getPopularFilms(FILMS)).hasSize(FILMS);
+
+        runConcurrently(thread -> {
+            for (int userId = thread; userId < USERS; userId += THREADS) {
+                if (userId % 2 == 0) {
+                    filmStorage.deleteLike(filmIds.get(0), userId);
+                }
+            }
+        });
+
+        assertThat(filmStorage.getFilmById(filmIds.get(0)).getLikes()).hasSize(USERS / 2);
+        assertThat(filmStorage.getPopularFilms(FILMS).getLast().getId()).isEqualTo(filmIds.get(0));
+    }
+
+    @Test
+    void concurrentFriendshipsStaySymmetric() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            userIds.add(userStorage.createUser(user(i)).getId());
+        }
+
+        runConcurrently(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 20_000; i++) {
+                Integer userId = userIds.get(random.nextInt(userIds.size()));
+                Integer friendId = userIds.get(random.nextInt(userIds.size()));
+                if (userId.equals(friendId)) {
+                    continue;
+                }
+                if (random.nextBoolean()) {
+                    userStorage.addFriend(userId, friendId);
+                } else {
+                    userStorage.deleteFriend(friendId, userId);
+                }
+            }
+        });
+
+        for (User user : userStorage.getAllUsers()) {
+            for (Integer friendId : user.getFriends()) {
+                assertThat(userStorage.getUserById(friendId).getFriends())
+                        .as("дружба %d -> %d должна быть взаимной", user.getId(), friendId)
+                        .contains(user.getId());
+            }
+        }
+    }
+
+    @Test
+    void concurrentDuplicateMutationsReportOneChange() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        int filmId = filmStorage.createFilm(film(0)).getId();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            userIds.add(userStorage.createUser(user(i)).getId());
+        }
+        int first = userIds.getFirst();
+        AtomicInteger likesAdded = new AtomicInteger();
+        AtomicInteger friendshipsAdded = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (Integer userId : userIds) {
+                if (filmStorage.addLike(filmId, userId)) {
+                    likesAdded.incrementAndGet();
+                }
+                if (userId != first && (thread % 2 == 0
+                        ? userStorage.addFriend(first, userId) : userStorage.addFriend(userId, first))) {
+                    friendshipsAdded.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(likesAdded).hasValue(userIds.size());
+        assertThat(friendshipsAdded).hasValue(userIds.size() - 1);
+
+        AtomicInteger likesDeleted = new AtomicInteger();
+        AtomicInteger friendshipsDeleted = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (Integer userId : userIds) {
+                if (filmStorage.deleteLike(filmId, userId)) {
+                    likesDeleted.incrementAndGet();
+                }
+                if (userId != first && userStorage.deleteFriend(userId, first)) {
+                    friendshipsDeleted.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(likesDeleted).hasValue(userIds.size());
+        assertThat(friendshipsDeleted).hasValue(userIds.size() - 1);
+        assertThat(filmStorage.getLikesCount()).isZero();
+        assertThat(userStorage.getFriendshipsCount()).isZero();
+    }
+
+    @Test
+    void deletedUserLeavesNoFriendLinksOrLikes() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            userIds.add(userStorage.createUser(user(i)).getId());
+        }
+        int deletedId = userIds.getFirst();
+        int filmId = filmStorage.createFilm(film(0)).getId();
+        filmStorage.addLike(filmId, deletedId);
+        filmStorage.addLike(filmId, userIds.getLast());
+
+        runConcurrently(thread -> {
+            for (int i = 1 + thread; i < userIds.size(); i += THREADS) {
+                userStorage.addFriend(userIds.get(i), deletedId);
+                if (i == 1 + thread) {
+                    userStorage.deleteUserById(deletedId);
+                }
+            }
+        });
+
+        assertThat(filmStorage.deleteUserLikes(deletedId)).containsExactly(filmId);
+        assertThat(userStorage.getUserById(deletedId)).isNull();
+        long friendLinks = 0;
+        for (User user : userStorage.getAllUsers()) {
+            assertThat(user.getFriends().contains(deletedId)).isFalse();
+            friendLinks += user.getFriends().size();
+        }
+        assertThat(userStorage.getFriendshipsCount()).isEqualTo(friendLinks / 2);
+        assertThat(filmStorage.getFilmById(filmId).getLikes()).containsExactly(userIds.getLast());
+        assertThat(filmStorage.getLikedFilmIds(deletedId)).isEmpty();
+        assertThat(filmStorage.getPopularFilms(1).getFirst().getLikes()).hasSize(1);
+    }
+
+    @Test
+    void updatesDoNotRecreateDeletedEntities() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Film film = filmStorage.createFilm(film(0));
+        User user = userStorage.createUser(user(0));
+        AtomicInteger notFound = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                filmStorage.deleteFilmById(film.getId());
+                userStorage.deleteUserById(user.getId());
+                return;
+            }
+            for (int i = 0; i < 1_000; i++) {
+                try {
+                    filmStorage.updateFilm(film.toBuilder().name("name" + i).build());
+                    userStorage.updateUser(user.toBuilder().name("name" + i).build());
+                } catch (NotFoundException e) {
+                    notFound.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(filmStorage.getFilmById(film.getId())).isNull();
+        assertThat(filmStorage.getFilmsCount()).isZero();
+        assertThat(userStorage.getUserById(user.getId())).isNull();
+        assertThat(userStorage.getUserByEmail(user.getEmail())).isNull();
+        assertThat(userStorage.getUsersCount()).isZero();
+        assertThat(notFound.get()).isPositive();
+        assertThatThrownBy(() -> filmStorage.updateFilm(film, film.getVersion()))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void concurrentCreatesGetUniqueIds() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 1_000; i++) {
+                filmStorage.createFilm(film(i));
+                userStorage.createUser(user(thread * 1_000 + i));
+            }
+        });
+
+        assertThat(filmStorage.getAllFilms()).hasSize(THREADS * 1_000);
+        assertThat(userStorage.getAllUsers()).hasSize(THREADS * 1_000);
+    }
+
+    @Test
+    void concurrentDuplicateCreatesKeepOneUserPerEmailAndLogin() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 500; i++) {
+                User user = user(i);
+                if (thread % 2 == 1) {
+                    user.setEmail(user.getEmail().toUpperCase());
+                }
+                try {
+                    userStorage.createUser(user);
+                    created.incrementAndGet();
+                } catch (ConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(created.get()).isEqualTo(500);
+        assertThat(conflicts.get()).isEqualTo((THREADS - 1) * 500);
+        assertThat(userStorage.getUsersCount()).isEqualTo(500);
+        User stored = userStorage.getUserByLogin("user7");
+        assertThat(userStorage.getUserByEmail("USER7@Mail.Ru")).isEqualTo(stored);
+
+        User renamed = stored.toBuilder().email("renamed@mail.ru").login("renamed").build();
+        userStorage.updateUser(renamed);
+        assertThat(userStorage.getUserByEmail("user7@mail.ru")).isNull();
+        assertThat(userStorage.getUserByLogin("renamed").getId()).isEqualTo(stored.getId());
+        assertThat(userStorage.createUser(user(7)).getId()).isNotEqualTo(stored.getId());
+        assertThatThrownBy(() -> userStorage.updateUser(user(8).toBuilder().id(stored.getId()).build()))
+                .isInstanceOf(ConflictException.class);
+        assertThat(userStorage.getUserByLogin("renamed").getEmail()).isEqualTo("renamed@mail.ru");
+    }
+
+    @Test
+    void publishedFilmsAreNotChangedByWriters() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        int filmId = filmStorage.createFilm(film(0)).getId();
+        Film published = filmStorage.getFilmById(filmId);
+
+        runConcurrently(thread -> {
+            for (int userId = thread; userId < USERS; userId += THREADS) {
+                filmStorage.addLike(filmId, userId);
+                Film current = filmStorage.getFilmById(filmId);
+                assertThat(current.getLikes().isFrozen()).isTrue();
+                assertThat(current.getLikes()).hasSize((int) current.getVersion() - 1);
+            }
+        });
+
+        assertThat(published.getLikes()).isEmpty();
+        assertThat(published.getVersion()).isEqualTo(1);
+        Film liked = filmStorage.getFilmById(filmId);
+        assertThat(liked.getVersion()).isEqualTo(USERS + 1);
+
+        Film renamed = liked.toBuilder().name("renamed").likes(new IntHashSet()).build();
+        assertThat(filmStorage.updateFilm(renamed).getLikes()).hasSize(USERS);
+        assertThat(filmStorage.getFilmById(filmId).getVersion()).isEqualTo(USERS + 2);
+        assertThat(liked.getName()).isEqualTo("Фильм 0");
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int threadIndex = thread;
+                Callable<Void> callable = () -> {
+                    task.run(threadIndex);
+                    return null;
+                };
+                futures.add(executor.submit(callable));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int threadIndex);
+    }
+}
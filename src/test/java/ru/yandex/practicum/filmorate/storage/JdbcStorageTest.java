@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+@SpringBootTest(properties = {
+        "filmorate.storage.hydration.parallel=true",
+        "filmorate.storage.hydration.min-chunk-size=1"
+})
+@ActiveProfiles("h2")
+@DirtiesContext
+class JdbcStorageTest {
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Test
+    void storesFilmsUsersLikesAndFriends() {
+        assertThat(filmStorage).isInstanceOf(JdbcFilmStorage.class);
+        assertThat(userStorage).isInstanceOf(JdbcUserStorage.class);
+
+        User first = userStorage.createUser(user(1));
+        User second = userStorage.createUser(user(2));
+        User third = userStorage.createUser(user(3));
+        Film film = filmStorage.createFilm(film(1));
+        Film popular = filmStorage.createFilm(film(2));
+
+        assertThat(filmStorage.addLike(popular.getId(), first.getId())).isTrue();
+        assertThat(filmStorage.addLike(popular.getId(), second.getId())).isTrue();
+        assertThat(filmStorage.addLike(popular.getId(), second.getId())).isFalse();
+        filmStorage.addLike(film.getId(), third.getId());
+        assertThat(filmStorage.deleteLike(film.getId(), third.getId())).isTrue();
+        assertThat(filmStorage.deleteLike(film.getId(), third.getId())).isFalse();
+        assertThat(filmStorage.addLikes(List.of(like(film, first), like(film, first), like(film, second))))
+                .containsExactly(like(film, first), like(film, second));
+        assertThat(filmStorage.getFilmById(film.getId()).getLikes())
+                .containsExactlyInAnyOrder(first.getId(), second.getId());
+        filmStorage.deleteLike(film.getId(), first.getId());
+        filmStorage.deleteLike(film.getId(), second.getId());
+
+        assertThat(filmStorage.getFilmById(popular.getId()).getLikes())
+                .containsExactlyInAnyOrder(first.getId(), second.getId());
+        assertThat(filmStorage.getPopularFilms(2)).extracting(Film::getId)
+                .containsExactly(popular.getId(), film.getId());
+        assertThat(filmStorage.getLikedFilmIds(second.getId())).containsExactly(popular.getId());
+        assertThat(filmStorage.getFilmsPage(film.getId(), 10)).extracting(Film::getId)
+                .containsExactly(popular.getId());
+        assertThat(filmStorage.getPopularFilmSummaries(2)).extracting(FilmSummary::likeCount)
+                .containsExactly(2, 0);
+        assertThat(filmStorage.getFilmSummariesPage(null, 10)).extracting(FilmSummary::id)
+                .containsExactly(film.getId(), popular.getId());
+        assertThat(filmStorage.getFilmLikes(popular.getId(), first.getId(), 10)).containsExactly(second.getId());
+        assertThat(filmStorage.getFilmsByFilter(new FilmFilter(LocalDate.of(2000, 1, 3), null, 60, 120), null, 10))
+                .extracting(Film::getId)
+                .containsExactly(popular.getId());
+        assertThat(filmStorage.getFilmSummariesByFilter(new FilmFilter(null, null, 60, 120), film.getId(), 10))
+                .extracting(FilmSummary::id)
+                .containsExactly(popular.getId());
+        assertThat(filmStorage.getFilmsByFilter(new FilmFilter(null, null, null, 89), null, 10)).isEmpty();
+
+        userStorage.addFriend(first.getId(), third.getId());
+        userStorage.addFriend(second.getId(), third.getId());
+        assertThat(userStorage.addFriend(first.getId(), second.getId())).isTrue();
+        assertThat(userStorage.addFriend(second.getId(), first.getId())).isFalse();
+
+        assertThat(userStorage.getFriends(third.getId())).extracting(User::getId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(userStorage.getCommonFriends(List.of(first.getId(), second.getId()))).extracting(User::getId)
+                .containsExactly(third.getId());
+        assertThat(userStorage.getUsersByIds(new int[]{third.getId(), first.getId(), 1000}))
+                .extracting(User::getId)
+                .containsExactly(third.getId(), first.getId());
+
+        assertThat(userStorage.getUserByEmail("USER3@mail.ru").getId()).isEqualTo(third.getId());
+        assertThat(userStorage.getUserByLogin("user2").getId()).isEqualTo(second.getId());
+        assertThat(userStorage.getUserByLogin("User2")).isNull();
+        User duplicate = user(4).toBuilder().email("User1@Mail.ru").build();
+        assertThatThrownBy(() -> userStorage.createUsers(List.of(user(5), duplicate)))
+                .isInstanceOf(ConflictException.class);
+        assertThat(userStorage.getUserByLogin("user5")).isNull();
+        assertThatThrownBy(() -> userStorage.updateUser(third.toBuilder().login("user1").build()))
+                .isInstanceOf(ConflictException.class);
+
+        assertThat(userStorage.deleteFriend(third.getId(), first.getId())).isTrue();
+        assertThat(userStorage.getUserById(first.getId()).getFriends()).containsExactly(second.getId());
+
+        film.setName("Новое название");
+        long version = filmStorage.getFilmById(film.getId()).getVersion();
+        assertThatThrownBy(() -> filmStorage.updateFilm(film, version - 1))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(filmStorage.updateFilm(film, version).getVersion()).isEqualTo(version + 1);
+        assertThat(filmStorage.getFilmById(film.getId()).getName()).isEqualTo("Новое название");
+        assertThat(filmStorage.getPopularFilmSummaries(2)).extracting(FilmSummary::version)
+                .contains(version + 1);
+
+        userStorage.deleteUserById(second.getId());
+        assertThat(filmStorage.getFilmById(popular.getId()).getLikes()).containsExactly(first.getId());
+        filmStorage.deleteFilmById(popular.getId());
+        assertThat(filmStorage.getFilmById(popular.getId())).isNull();
+    }
+
+    private static Like like(Film film, User user) {
+        return Like.builder()
+                .filmId(film.getId())
+                .userId(user.getId())
+                .build();
+    }
+}
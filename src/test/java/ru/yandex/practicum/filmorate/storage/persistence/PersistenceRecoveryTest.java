@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static ru.yandex.practicum.filmorate.TestData.film;
+import static ru.yandex.practicum.filmorate.TestData.user;
+
+class PersistenceRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversSnapshotAndJournalTail() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, WriteAheadLog.Durability.SYNC);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(wal);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(wal);
+        PersistenceManager manager = new PersistenceManager(wal, new SnapshotStore(directory), filmStorage,
+                userStorage);
+        manager.recover();
+
+        User first = userStorage.createUser(user(1));
+        User second = userStorage.createUser(user(2));
+        Film film = filmStorage.createFilm(film(1));
+        Film deleted = filmStorage.createFilm(film(2));
+        filmStorage.addLike(film.getId(), first.getId());
+        userStorage.addFriend(first.getId(), second.getId());
+
+        manager.takeSnapshot();
+
+        filmStorage.addLike(film.getId(), second.getId());
+        filmStorage.deleteFilmById(deleted.getId());
+        userStorage.deleteFriend(first.getId(), second.getId());
+        film.setName("Новое название");
+        filmStorage.updateFilm(film);
+        manager.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(directory, WriteAheadLog.Durability.SYNC);
+        InMemoryFilmStorage recoveredFilms = new InMemoryFilmStorage(reopened);
+        InMemoryUserStorage recoveredUsers = new InMemoryUserStorage(reopened);
+        PersistenceManager recovered = new PersistenceManager(reopened, new SnapshotStore(directory),
+                recoveredFilms, recoveredUsers);
+        recovered.recover();
+
+        assertThat(recoveredUsers.getAllUsers()).hasSize(2);
+        assertThat(recoveredUsers.getUserById(first.getId()).getFriends()).isEmpty();
+        assertThat(recoveredFilms.getFilmById(deleted.getId())).isNull();
+        Film recoveredFilm = recoveredFilms.getFilmById(film.getId());
+        assertThat(recoveredFilm.getName()).isEqualTo("Новое название");
+        assertThat(recoveredFilm.getLikes()).containsExactlyInAnyOrder(first.getId(), second.getId());
+        assertThat(recoveredFilms.getPopularFilms(1)).extracting(Film::getId).containsExactly(film.getId());
+        assertThat(recoveredFilms.createFilm(film(3)).getId()).isGreaterThan(deleted.getId());
+        assertThat(recoveredFilms.getVersionGeneration()).isNotEqualTo(filmStorage.getVersionGeneration());
+        assertThat(recoveredUsers.getVersionGeneration()).isNotEqualTo(userStorage.getVersionGeneration());
+        recovered.close();
+    }
+
+    @Test
+    void replaysEmailMovedAfterRotationOverFuzzySnapshot() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, WriteAheadLog.Durability.SYNC);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(wal);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(wal);
+        SnapshotStore snapshotStore = new SnapshotStore(directory);
+        PersistenceManager manager = new PersistenceManager(wal, snapshotStore, filmStorage, userStorage);
+        manager.recover();
+
+        // как в takeSnapshot: журнал уже переключён, а пользователи читаются после изменений из нового сегмента
+        long segment = wal.rotate();
+        User first = userStorage.createUser(user(1));
+        first.setEmail("moved@mail.ru");
+        userStorage.updateUser(first);
+        User second = user(2);
+        second.setEmail("user1@mail.ru");
+        second = userStorage.createUser(second);
+        snapshotStore.write(segment, new SnapshotStore.Header(filmStorage.getLastId(), userStorage.getLastId()),
+                filmStorage.getAllFilms(), userStorage.getAllUsers());
+        manager.close();
+
+        WriteAheadLog reopened = new WriteAheadLog(directory, WriteAheadLog.Durability.SYNC);
+        InMemoryUserStorage recoveredUsers = new InMemoryUserStorage(reopened);
+        PersistenceManager recovered = new PersistenceManager(reopened, new SnapshotStore(directory),
+                new InMemoryFilmStorage(reopened), recoveredUsers);
+        recovered.recover();
+
+        assertThat(recoveredUsers.getUserByEmail("moved@mail.ru").getId()).isEqualTo(first.getId());
+        assertThat(recoveredUsers.getUserByEmail("user1@mail.ru").getId()).isEqualTo(second.getId());
+        assertThat(recoveredUsers.getUserByLogin("user1").getId()).isEqualTo(first.getId());
+        User duplicate = user(3);
+        duplicate.setEmail("moved@mail.ru");
+        assertThatThrownBy(() -> recoveredUsers.createUser(duplicate)).isInstanceOf(ConflictException.class);
+        recovered.close();
+    }
+
+    @Test
+    void rejectsWritesAfterJournalIsClosed() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, WriteAheadLog.Durability.SYNC);
+        wal.open(0);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(wal);
+        User stored = userStorage.createUser(user(1));
+        long sequence = wal.append(new JournalRecord.FriendAdded(1, 2));
+        wal.close();
+
+        wal.awaitDurable(sequence);
+        assertThatThrownBy(() -> userStorage.createUser(user(2))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> wal.awaitDurable(sequence + 10)).isInstanceOf(UncheckedIOException.class);
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        new WriteAheadLog(directory, WriteAheadLog.Durability.SYNC).replay(0, replayed::add);
+        assertThat(replayed).containsExactly(JournalRecord.userPut(userStorage.getUserById(stored.getId())),
+                new JournalRecord.FriendAdded(1, 2));
+    }
+
+    @Test
+    void servesSnapshotRowsBeforeWarmUp() throws Exception {
+        SnapshotStore snapshotStore = new SnapshotStore(directory);
+        Film liked = film(1);
+        liked.setId(1);
+        liked.getLikes().add(10);
+        Film deleted = film(2);
+        deleted.setId(2);
+        User user = user(1);
+        user.setId(10);
+        user.getFriends().add(11);
+        User friend = user(2);
+        friend.setId(11);
+        friend.setName(null);
+        friend.getFriends().add(10);
+        snapshotStore.write(0, new SnapshotStore.Header(2, 11), List.of(deleted, liked), List.of(user, friend));
+
+        MappedSnapshot snapshot = snapshotStore.open(0);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmStorage.attachSnapshot(snapshot.films());
+        userStorage.attachSnapshot(snapshot.users());
+
+        Film loaded = filmStorage.getFilmById(1);
+        assertThat(loaded.getName()).isEqualTo(liked.getName());
+        assertThat(loaded.getReleaseDate()).isEqualTo(liked.getReleaseDate());
+        assertThat(loaded.getLikes()).containsExactly(10);
+        assertThat(userStorage.getUsersByIds(new int[]{10, 11}))
+                .extracting(User::getId, User::getName)
+                .containsExactly(tuple(10, user.getName()), tuple(11, null));
+        filmStorage.deleteFilmById(2);
+        filmStorage.addLike(1, 11);
+
+        filmStorage.warmUp();
+        userStorage.warmUp();
+
+        assertThat(filmStorage.getAllFilms()).extracting(Film::getId).containsExactly(1);
+        assertThat(filmStorage.getFilmById(1).getLikes()).containsExactlyInAnyOrder(10, 11);
+        assertThat(filmStorage.getLikedFilmIds(11)).containsExactly(1);
+        assertThat(userStorage.getUserById(10).getFriends()).containsExactly(11);
+    }
+
+    @Test
+    void checksUniquenessAgainstSnapshotBeforeWarmUp() throws Exception {
+        SnapshotStore snapshotStore = new SnapshotStore(directory);
+        User user = user(1);
+        user.setId(10);
+        User other = user(2);
+        other.setId(11);
+        snapshotStore.write(0, new SnapshotStore.Header(0, 11), List.of(), List.of(user, other));
+
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        userStorage.attachSnapshot(snapshotStore.open(0).users());
+        userStorage.restoreLastId(11);
+
+        assertThat(userStorage.getUserByEmail("USER1@mail.ru").getId()).isEqualTo(10);
+        assertThat(userStorage.getUserByLogin("user2").getId()).isEqualTo(11);
+        User duplicate = user(3);
+        duplicate.setEmail("User2@Mail.ru");
+        assertThatThrownBy(() -> userStorage.createUser(duplicate)).isInstanceOf(ConflictException.class);
+
+        User renamed = userStorage.getUserById(10).toBuilder()
+                .email("renamed@mail.ru")
+                .login("renamed")
+                .build();
+        userStorage.updateUser(renamed);
+        assertThat(userStorage.createUser(user(1)).getId()).isGreaterThan(11);
+    }
+}
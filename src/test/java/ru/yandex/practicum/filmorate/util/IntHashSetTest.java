@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntHashSetTest {
+
+    @Test
+    void behavesLikeHashSetUnderRandomOperations() {
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            } else {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            }
+        }
+        assertThat(set).hasSameSizeAs(expected);
+        for (int value = -100; value < 4_900; value++) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+        assertThat(set).containsExactlyElementsOf(expected.stream().sorted().toList());
+        assertThat(set.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(set.freeze()).containsExactlyElementsOf(expected.stream().sorted().toList());
+        assertThat(set).isEqualTo(expected);
+    }
+
+    @Test
+    void filterContainedKeepsOrderOfCandidates() {
+        IntHashSet set = new IntHashSet();
+        for (int value = 0; value < 100; value += 3) {
+            set.add(value);
+        }
+
+        assertThat(set.filterContained(new int[]{1, 3, 4, 6, 99, 100})).containsExactly(3, 6, 99);
+        assertThat(set.filterContained(new int[0])).isEmpty();
+    }
+
+    @Test
+    void serializesAsJsonArrayOfIdsAndIgnoresThemOnInput() throws Exception {
+        ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+        Film film = Film.builder()
+                .id(1)
+                .name("name")
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+        film.getLikes().add(3);
+        film.getLikes().add(1);
+        film.getLikes().add(2);
+
+        String json = mapper.writeValueAsString(film);
+
+        assertThat(json).contains("\"likes\":[1,2,3]");
+        assertThat(mapper.readValue(json, Film.class).getLikes()).isEmpty();
+    }
+}